@@ -0,0 +1,107 @@
+package tourGuide.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import gpsUtil.location.Location;
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+import tourGuide.location.AttractionDistances;
+import tourGuide.service.RewardsService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DistanceBenchmark {
+
+	private static final int PAIRS = 1024;
+	
+	private RewardsService rewardsService;
+	private AttractionDistances attractionDistances;
+	private AttractionDistances.Radius proximity;
+	private Location[] from;
+	private Location[] to;
+	private double[] distances;
+	private int[] nearby;
+	
+	@Setup
+	public void setUp() {
+		rewardsService = new RewardsService(new FakeGpsClient(Users.SEED, Latency.none()), new FakeRewardClient(Users.SEED, Latency.none()));
+		attractionDistances = rewardsService.getAttractionIndex().getDistances();
+		proximity = new AttractionDistances.Radius(10);
+		distances = new double[attractionDistances.size()];
+		nearby = new int[attractionDistances.size()];
+		SplittableRandom random = new SplittableRandom(42);
+		from = new Location[PAIRS];
+		to = new Location[PAIRS];
+		for(int i = 0; i < PAIRS; i++) {
+			from[i] = Users.randomLocation(random);
+			to[i] = Users.randomLocation(random);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		// the pools of a trial would otherwise keep running through the next ones
+		rewardsService.close();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(PAIRS)
+	public double getDistance() {
+		double total = 0;
+		for(int i = 0; i < PAIRS; i++) {
+			total += rewardsService.getDistance(from[i], to[i]);
+		}
+		return total;
+	}
+	
+	/**
+	 * Distances from one location to every attraction, to compare per pair with getDistance.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(PAIRS)
+	public double distancesFrom() {
+		double total = 0;
+		for(int i = 0; i < PAIRS; i++) {
+			attractionDistances.distancesFrom(from[i], distances);
+			total += distances[i % distances.length];
+		}
+		return total;
+	}
+	
+	/**
+	 * Reward proximity check of one location against every attraction.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(PAIRS)
+	public int withinProximity() {
+		int total = 0;
+		for(int i = 0; i < PAIRS; i++) {
+			total += attractionDistances.withinRadius(from[i], proximity, nearby);
+		}
+		return total;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(PAIRS)
+	public int withinProximityIndex() {
+		int total = 0;
+		for(int i = 0; i < PAIRS; i++) {
+			total += rewardsService.getAttractionIndex().withinRadius(from[i], 10).size();
+		}
+		return total;
+	}
+	
+}
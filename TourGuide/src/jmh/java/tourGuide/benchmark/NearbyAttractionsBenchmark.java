@@ -0,0 +1,70 @@
+package tourGuide.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakePricingClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.model.User;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+
+/**
+ * Nearby attraction lookups cycling over the last locations of a fixed set of users.
+ * A lookup only searches the attractions, so how many users there are doesn't change its cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NearbyAttractionsBenchmark {
+
+	private static final int USERS = 1024;
+	
+	private RewardsService rewardsService;
+	private TourGuideService tourGuideService;
+	private VisitedLocation[] locations;
+	private int next;
+	
+	@Setup
+	public void setUp() {
+		FakeGpsClient gpsClient = new FakeGpsClient(Users.SEED, Latency.none());
+		InternalTestHelper.setInternalUserNumber(0);
+		rewardsService = new RewardsService(gpsClient, new FakeRewardClient(Users.SEED, Latency.none()));
+		tourGuideService = new TourGuideService(gpsClient, rewardsService, new FakePricingClient(Users.SEED, Latency.none()));
+		tourGuideService.tracker.stopTracking();
+		List<User> users = Users.generate(USERS, 1);
+		locations = new VisitedLocation[users.size()];
+		for(int i = 0; i < locations.length; i++) {
+			locations[i] = users.get(i).getLastVisitedLocation();
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		// the pools of a trial would otherwise keep running through the next ones
+		tourGuideService.close();
+		rewardsService.close();
+	}
+	
+	@Benchmark
+	public List<Attraction> getNearByAttractions() {
+		VisitedLocation visitedLocation = locations[next];
+		next = (next + 1) % locations.length;
+		return tourGuideService.getNearByAttractions(visitedLocation);
+	}
+	
+}
@@ -0,0 +1,65 @@
+package tourGuide.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+import tourGuide.model.User;
+import tourGuide.service.RewardsService;
+
+/**
+ * One pass of reward calculation over every user, each with a fresh three location history, spread over the rewards pool.
+ * See {@link SequentialRewardsBenchmark} for the one user after the other baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RewardsBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int userCount;
+	
+	@Param({ "0", "10" })
+	public long rewardCentralLatencyMillis;
+	
+	private RewardsService rewardsService;
+	private List<User> users;
+	
+	@Setup(Level.Trial)
+	public void setUpService() {
+		rewardsService = new RewardsService(new FakeGpsClient(Users.SEED, Latency.none()),
+				new FakeRewardClient(Users.SEED, Latency.fixed(rewardCentralLatencyMillis)));
+		// every location is near some attraction, so each user gets rewarded
+		rewardsService.setProximityBuffer(1000);
+	}
+	
+	@Setup(Level.Iteration)
+	public void setUpUsers() {
+		users = Users.generate(userCount, 3);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		rewardsService.close();
+	}
+	
+	@Benchmark
+	public List<User> calculateRewardsForAll() {
+		rewardsService.calculateRewardsForAll(users).join();
+		return users;
+	}
+	
+}
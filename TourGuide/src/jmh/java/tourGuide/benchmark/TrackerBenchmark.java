@@ -0,0 +1,75 @@
+package tourGuide.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakePricingClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+import tourGuide.helper.ExecutionMode;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.repository.InMemoryUserRepository;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+
+/**
+ * One full tracker cycle per iteration over the same users: locate every user,
+ * then calculate the rewards of the newly visited locations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TrackerBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int userCount;
+	
+	@Param({ "0", "50" })
+	public long gpsUtilLatencyMillis;
+	
+	@Param({ "0", "10" })
+	public long rewardCentralLatencyMillis;
+	
+	@Param({ "PLATFORM", "VIRTUAL" })
+	public ExecutionMode executionMode;
+	
+	private RewardsService rewardsService;
+	private TourGuideService tourGuideService;
+	
+	@Setup
+	public void setUp() {
+		FakeGpsClient gpsClient = new FakeGpsClient(Users.SEED, Latency.fixed(gpsUtilLatencyMillis));
+		InternalTestHelper.setInternalUserNumber(userCount);
+		rewardsService = new RewardsService(gpsClient,
+				new FakeRewardClient(Users.SEED, Latency.fixed(rewardCentralLatencyMillis)), 200, executionMode);
+		// the cycle is driven by the benchmark, not by the background tracker
+		tourGuideService = new TourGuideService(gpsClient, rewardsService, new FakePricingClient(Users.SEED, Latency.none()),
+				new InMemoryUserRepository(), 100, executionMode, false, false);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		// the pools of a trial would otherwise keep running through the next ones
+		tourGuideService.close();
+		rewardsService.close();
+	}
+	
+	@Benchmark
+	public void trackerCycle() throws InterruptedException {
+		tourGuideService.refreshAttractions();
+		tourGuideService.trackAllUsers(tourGuideService.getAllUsers()).join();
+		// rewards catch up in the pipeline once tracking is done
+		tourGuideService.getRewardsPipeline().awaitIdle(1, TimeUnit.HOURS);
+	}
+	
+}
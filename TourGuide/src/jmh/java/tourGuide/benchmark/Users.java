@@ -0,0 +1,42 @@
+package tourGuide.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.model.User;
+
+/**
+ * Builds the same users with the same location history on every run.
+ */
+final class Users {
+
+	static final long SEED = 42;
+	
+	private Users() {
+	}
+	
+	static List<User> generate(int userCount, int locationsPerUser) {
+		SplittableRandom random = new SplittableRandom(SEED);
+		List<User> users = new ArrayList<>(userCount);
+		for(int i = 0; i < userCount; i++) {
+			UUID userId = new UUID(random.nextLong(), random.nextLong());
+			String userName = "benchmarkUser" + i;
+			User user = new User(userId, userName, "000", userName + "@tourGuide.com");
+			for(int j = 0; j < locationsPerUser; j++) {
+				user.addToVisitedLocations(new VisitedLocation(userId, randomLocation(random), new Date()));
+			}
+			users.add(user);
+		}
+		return users;
+	}
+	
+	static Location randomLocation(SplittableRandom random) {
+		return new Location(random.nextDouble(-85.05112878, 85.05112878), random.nextDouble(-180, 180));
+	}
+	
+}
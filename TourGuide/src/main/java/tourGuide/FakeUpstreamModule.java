@@ -0,0 +1,79 @@
+package tourGuide;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import tourGuide.cache.CachingRewardClient;
+import tourGuide.cache.LruCache;
+import tourGuide.client.BatchingGpsClient;
+import tourGuide.client.GpsClient;
+import tourGuide.client.PricingClient;
+import tourGuide.client.RewardClient;
+import tourGuide.client.TimedGpsClient;
+import tourGuide.client.TimedPricingClient;
+import tourGuide.client.TimedRewardClient;
+import tourGuide.client.UpstreamResilience;
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakePricingClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+
+/**
+ * In-process fakes of the upstream libraries, enabled by the "fake" profile.
+ * Their answers and latencies are seeded and the latency distributions configurable, so load tests can be reproduced
+ * and run against slower or faster upstreams than the real ones.
+ */
+@Configuration
+@Profile("fake")
+public class FakeUpstreamModule {
+	
+	@Value("${tourGuide.fake.seed}")
+	private long seed;
+	
+	@Value("${tourGuide.fake.gps.latency}")
+	private String gpsLatency;
+	
+	@Value("${tourGuide.fake.gps.batch.maxSize}")
+	private int gpsBatchMaxSize;
+	
+	@Value("${tourGuide.fake.gps.batch.maxDelayMillis}")
+	private long gpsBatchMaxDelay;
+	
+	@Value("${tourGuide.fake.rewards.latency}")
+	private String rewardsLatency;
+	
+	@Value("${tourGuide.fake.pricing.latency}")
+	private String pricingLatency;
+	
+	/**
+	 * Lookups are batched unless the batch size is 1. Timings and the resilience policy then apply to each lookup,
+	 * batch wait included.
+	 */
+	@Bean
+	public GpsClient getFakeGpsClient(UpstreamResilience upstreamResilience, MeterRegistry meterRegistry) {
+		FakeGpsClient fakeGpsClient = new FakeGpsClient(seed, Latency.parse(gpsLatency));
+		GpsClient gpsClient = gpsBatchMaxSize > 1
+				? new BatchingGpsClient(fakeGpsClient, gpsBatchMaxSize, gpsBatchMaxDelay, TimeUnit.MILLISECONDS)
+				: fakeGpsClient;
+		return upstreamResilience.protect(new TimedGpsClient(gpsClient, meterRegistry));
+	}
+	
+	@Bean
+	public RewardClient getFakeRewardClient(UpstreamResilience upstreamResilience, LruCache<CachingRewardClient.Key, Integer> rewardPointsCache,
+			MeterRegistry meterRegistry) {
+		RewardClient rewardClient = new TimedRewardClient(new FakeRewardClient(seed, Latency.parse(rewardsLatency)), meterRegistry);
+		return new CachingRewardClient(upstreamResilience.protect(rewardClient), rewardPointsCache);
+	}
+	
+	@Bean
+	public PricingClient getFakePricingClient(UpstreamResilience upstreamResilience, MeterRegistry meterRegistry) {
+		return upstreamResilience.protect(new TimedPricingClient(new FakePricingClient(seed, Latency.parse(pricingLatency)), meterRegistry));
+	}
+	
+}
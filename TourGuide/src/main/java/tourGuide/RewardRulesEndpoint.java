@@ -0,0 +1,76 @@
+package tourGuide;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import tourGuide.service.RewardRules;
+import tourGuide.service.RewardsBackfill;
+import tourGuide.service.RewardsService;
+
+/**
+ * Actuator endpoint at /actuator/rewardRules telling the reward rules in force and the progress of the last backfill.
+ * POSTing new proximities swaps in new rules and re-evaluates every user's history under them,
+ * POSTing only maxUsersPerSecond throttles the backfill in progress.
+ */
+@Endpoint(id = "rewardRules")
+public class RewardRulesEndpoint {
+
+	private final RewardsService rewardsService;
+	private final RewardsBackfill rewardsBackfill;
+	
+	public RewardRulesEndpoint(RewardsService rewardsService, RewardsBackfill rewardsBackfill) {
+		this.rewardsService = rewardsService;
+		this.rewardsBackfill = rewardsBackfill;
+	}
+	
+	@ReadOperation
+	public Map<String, Object> rewardRules() {
+		RewardRules rules = rewardsService.getRules();
+		Map<String, Object> rewardRules = new LinkedHashMap<>();
+		rewardRules.put("version", rules.getVersion());
+		rewardRules.put("proximityBuffer", rules.getProximityBuffer());
+		rewardRules.put("attractionProximityRange", rules.getAttractionProximityRange());
+		rewardRules.put("backfillMaxUsersPerSecond", rewardsBackfill.getMaxUsersPerSecond());
+		RewardsBackfill.Progress backfill = rewardsBackfill.getLastRun();
+		if(backfill != null) {
+			Map<String, Object> progress = new LinkedHashMap<>();
+			progress.put("rulesVersion", backfill.getRules().getVersion());
+			progress.put("state", backfill.getState());
+			progress.put("totalUsers", backfill.getTotalUserCount());
+			progress.put("processedUsers", backfill.getProcessedUserCount());
+			progress.put("failedUsers", backfill.getFailedUserCount());
+			progress.put("rewardsGranted", backfill.getRewardsGrantedCount());
+			progress.put("fractionDone", backfill.getFractionDone());
+			progress.put("elapsedMillis", backfill.getElapsedMillis());
+			rewardRules.put("backfill", progress);
+		}
+		return rewardRules;
+	}
+	
+	@WriteOperation
+	public Map<String, Object> changeRewardRules(@Nullable Integer proximityBuffer, @Nullable Integer attractionProximityRange,
+			@Nullable Integer maxUsersPerSecond) {
+		if(maxUsersPerSecond != null) {
+			rewardsBackfill.setMaxUsersPerSecond(maxUsersPerSecond);
+		}
+		if(proximityBuffer != null || attractionProximityRange != null) {
+			rewardsBackfill.changeRules(rules -> {
+				RewardRules changed = rules;
+				if(proximityBuffer != null) {
+					changed = changed.withProximityBuffer(proximityBuffer);
+				}
+				if(attractionProximityRange != null) {
+					changed = changed.withAttractionProximityRange(attractionProximityRange);
+				}
+				return changed;
+			});
+		}
+		return rewardRules();
+	}
+	
+}
@@ -1,14 +1,29 @@
 package tourGuide;
 
+import java.io.IOException;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.jsoniter.output.JsonStream;
+import com.jsoniter.spi.JsoniterSpi;
 
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import tourGuide.service.TourGuideService;
 import tourGuide.model.User;
@@ -17,33 +32,53 @@ import tripPricer.Provider;
 @RestController
 public class TourGuideController {
 
+	static {
+		// jsoniter would otherwise read the private fields of these JDK classes by reflection, which Java 17+ refuses
+		JsoniterSpi.registerTypeEncoder(UUID.class, (uuid, stream) -> stream.writeVal(uuid.toString()));
+		JsoniterSpi.registerTypeEncoder(Date.class, (date, stream) -> stream.writeVal(((Date) date).getTime()));
+	}
+	
 	@Autowired
 	TourGuideService tourGuideService;
 	
+	// endpoints waiting on an upstream answer from what they have, or 503, once their timeout elapses
+	@Value("${tourGuide.api.getLocation.timeoutMillis}")
+	long getLocationTimeout;
+	
+	@Value("${tourGuide.api.getNearbyAttractions.timeoutMillis}")
+	long getNearbyAttractionsTimeout;
+	
+	@Value("${tourGuide.api.getTripDeals.timeoutMillis}")
+	long getTripDealsTimeout;
+	
     @RequestMapping("/")
     public String index() {
         return "Greetings from TourGuide!";
     }
     
+    //  The handlers below return futures, so no servlet thread waits while gpsUtil, RewardCentral or TripPricer answer.
     @RequestMapping("/getLocation") 
-    public String getLocation(@RequestParam String userName) {
-    	VisitedLocation visitedLocation = tourGuideService.getUserLocation(getUser(userName));
-		return JsonStream.serialize(visitedLocation.location);
+    public CompletableFuture<String> getLocation(@RequestParam String userName) {
+    	User user = getUser(userName);
+    	return tourGuideService.getUserLocationAsync(user)
+    			.orTimeout(getLocationTimeout, TimeUnit.MILLISECONDS)
+    			.exceptionally(e -> lastVisitedLocation(user, e))
+    			.thenApply(visitedLocation -> JsonStream.serialize(visitedLocation.location));
     }
     
-    //  TODO: Change this method to no longer return a List of Attractions.
- 	//  Instead: Get the closest five tourist attractions to the user - no matter how far away they are.
- 	//  Return a new JSON object that contains:
-    	// Name of Tourist attraction, 
-        // Tourist attractions lat/long, 
-        // The user's location lat/long, 
-        // The distance in miles between the user's location and each of the attractions.
-        // The reward points for visiting each Attraction.
-        //    Note: Attraction reward points can be gathered from RewardsCentral
+    //  Returns the five tourist attractions closest to the user - no matter how far away they are -
+    //  with their location, the user's location, the distance in miles and the reward points for visiting them.
+    //  Reward points RewardCentral doesn't answer in time for are left empty.
     @RequestMapping("/getNearbyAttractions") 
-    public String getNearbyAttractions(@RequestParam String userName) {
-    	VisitedLocation visitedLocation = tourGuideService.getUserLocation(getUser(userName));
-    	return JsonStream.serialize(tourGuideService.getNearByAttractions(visitedLocation));
+    public CompletableFuture<String> getNearbyAttractions(@RequestParam String userName) {
+    	User user = getUser(userName);
+    	return tourGuideService.getUserLocationAsync(user)
+    			.thenCompose(visitedLocation -> tourGuideService.getClosestAttractionsAsync(visitedLocation, 5))
+    			.orTimeout(getNearbyAttractionsTimeout, TimeUnit.MILLISECONDS)
+    			.exceptionally(e -> {
+    				throw unavailable("nearby attractions", e);
+    			})
+    			.thenApply(JsonStream::serialize);
     }
     
     @RequestMapping("/getRewards") 
@@ -51,30 +86,72 @@ public class TourGuideController {
     	return JsonStream.serialize(tourGuideService.getUserRewards(getUser(userName)));
     }
     
+    //  Streams every user's most recent location, taken from the stored location history rather than gpsUtil,
+    //  as a JSON mapping of userId to location:
+    //     {
+    //        "019b04a9-067a-4c76-8817-ee75088c3822": {"longitude":-48.188821,"latitude":74.84371} 
+    //        ...
+    //     }
+    //  Entries are written straight to the response so the whole mapping is never held in memory.
     @RequestMapping("/getAllCurrentLocations")
-    public String getAllCurrentLocations() {
-    	// TODO: Get a list of every user's most recent location as JSON
-    	//- Note: does not use gpsUtil to query for their current location, 
-    	//        but rather gathers the user's current location from their stored location history.
-    	//
-    	// Return object should be the just a JSON mapping of userId to Locations similar to:
-    	//     {
-    	//        "019b04a9-067a-4c76-8817-ee75088c3822": {"longitude":-48.188821,"latitude":74.84371} 
-    	//        ...
-    	//     }
-    	
-    	return JsonStream.serialize("");
+    public void getAllCurrentLocations(HttpServletResponse response) throws IOException {
+    	response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    	response.setCharacterEncoding("UTF-8");
+    	JsonStream stream = new JsonStream(response.getOutputStream(), 8192);
+    	stream.writeObjectStart();
+    	boolean first = true;
+    	for(Map.Entry<UUID, Location> entry : tourGuideService.getAllCurrentLocations().entrySet()) {
+    		if(!first) {
+    			stream.writeMore();
+    		}
+    		first = false;
+    		stream.writeObjectField(entry.getKey().toString());
+    		stream.writeObjectStart();
+    		stream.writeObjectField("longitude");
+    		stream.writeVal(entry.getValue().longitude);
+    		stream.writeMore();
+    		stream.writeObjectField("latitude");
+    		stream.writeVal(entry.getValue().latitude);
+    		stream.writeObjectEnd();
+    	}
+    	stream.writeObjectEnd();
+    	stream.flush();
     }
     
+    //  Falls back to the deals last found for the user when TripPricer doesn't answer in time.
     @RequestMapping("/getTripDeals")
-    public String getTripDeals(@RequestParam String userName) {
-    	List<Provider> providers = tourGuideService.getTripDeals(getUser(userName));
-    	return JsonStream.serialize(providers);
+    public CompletableFuture<String> getTripDeals(@RequestParam String userName) {
+    	User user = getUser(userName);
+    	return tourGuideService.getTripDealsAsync(user)
+    			.orTimeout(getTripDealsTimeout, TimeUnit.MILLISECONDS)
+    			.exceptionally(e -> {
+    				List<Provider> tripDeals = user.getTripDeals();
+    				if(tripDeals == null || tripDeals.isEmpty()) {
+    					throw unavailable("trip deals", e);
+    				}
+    				return tripDeals;
+    			})
+    			.thenApply(JsonStream::serialize);
     }
     
     private User getUser(String userName) {
     	return tourGuideService.getUser(userName);
     }
+    
+    private VisitedLocation lastVisitedLocation(User user, Throwable e) {
+    	// tracking may have located the user in the meantime
+    	VisitedLocation visitedLocation = user.getLastVisitedLocation();
+    	if(visitedLocation == null) {
+    		throw unavailable("location", e);
+    	}
+    	return visitedLocation;
+    }
+    
+    private ResponseStatusException unavailable(String what, Throwable e) {
+    	Throwable cause = e.getCause() != null ? e.getCause() : e;
+    	String reason = cause instanceof TimeoutException ? "Timed out getting the " + what : "Failed getting the " + what;
+    	return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, reason, cause);
+    }
    
 
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package tourGuide;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import tourGuide.client.CircuitBreaker;
+import tourGuide.client.ConcurrencyLimit;
+import tourGuide.client.UpstreamPolicy;
+import tourGuide.client.UpstreamResilience;
+import tourGuide.pipeline.RewardsPipeline;
+import tourGuide.repository.UserRepository;
+import tourGuide.service.RewardsService;
+import tourGuide.tracker.Tracker;
+
+/**
+ * Publishes the tracker, reward and upstream counters to Micrometer under tourGuide.*,
+ * hence to the actuator metrics and Prometheus endpoints.
+ * The counters themselves are kept by the components, this only reads them when scraped.
+ */
+public class TourGuideMetrics implements MeterBinder {
+
+	private final Tracker tracker;
+	private final RewardsService rewardsService;
+	private final RewardsPipeline rewardsPipeline;
+	private final UserRepository userRepository;
+	private final UpstreamResilience upstreamResilience;
+	
+	public TourGuideMetrics(Tracker tracker, RewardsService rewardsService, RewardsPipeline rewardsPipeline,
+			UserRepository userRepository, UpstreamResilience upstreamResilience) {
+		this.tracker = tracker;
+		this.rewardsService = rewardsService;
+		this.rewardsPipeline = rewardsPipeline;
+		this.userRepository = userRepository;
+		this.upstreamResilience = upstreamResilience;
+	}
+	
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("tourGuide.users", userRepository, UserRepository::count)
+				.description("Number of users in the user store")
+				.register(registry);
+		
+		Gauge.builder("tourGuide.tracker.users", tracker, Tracker::getTrackedUserCount)
+				.description("Number of users the tracker polls")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.tracker.polls", tracker, Tracker::getPollCount)
+				.description("Number of user locations polled by the tracker")
+				.register(registry);
+		Gauge.builder("tourGuide.tracker.turn.duration", tracker, t -> t.getLastTurnNanos() / 1e9)
+				.baseUnit("seconds")
+				.description("Duration of the tracker's last full turn over every user")
+				.register(registry);
+		Gauge.builder("tourGuide.tracker.throughput", tracker,
+						t -> t.getLastTurnNanos() == 0 ? 0 : t.getLastTurnPollCount() / (t.getLastTurnNanos() / 1e9))
+				.baseUnit("users/s")
+				.description("Users tracked per second over the tracker's last full turn")
+				.register(registry);
+		Gauge.builder("tourGuide.tracker.inFlight", tracker, Tracker::getInFlight)
+				.description("Number of users being tracked right now")
+				.register(registry);
+		Gauge.builder("tourGuide.tracker.backlog", tracker, Tracker::getBacklogSize)
+				.description("Number of due polls waiting for tracking capacity")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.tracker.polls.deferred", tracker, Tracker::getDeferredPollCount)
+				.description("Number of due polls deferred because the in-flight limit was reached")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.tracker.polls.late", tracker, Tracker::getLatePollCount)
+				.description("Number of polls that completed after the user's next poll was due")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.tracker.slots.late", tracker, Tracker::getLateTickCount)
+				.description("Number of tracker slots reached more than a slot late")
+				.register(registry);
+		
+		FunctionTimer.builder("tourGuide.rewards.calculations", rewardsService,
+						RewardsService::getCalculationCount, RewardsService::getCalculationTimeNanos, TimeUnit.NANOSECONDS)
+				.description("Reward calculations of a user's newly visited locations")
+				.register(registry);
+		Gauge.builder("tourGuide.rewards.pending", rewardsService, RewardsService::getPendingCalculationCount)
+				.description("Number of reward calculations submitted and not finished yet")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.rewards.granted", rewardsService, RewardsService::getRewardsGrantedCount)
+				.description("Number of rewards granted to users")
+				.register(registry);
+		Gauge.builder("tourGuide.rewards.pipeline.pending", rewardsPipeline, RewardsPipeline::getPendingEventCount)
+				.description("Number of tracked locations whose rewards are not calculated yet")
+				.register(registry);
+		Gauge.builder("tourGuide.rewards.pipeline.queued", rewardsPipeline, RewardsPipeline::getQueuedEventCount)
+				.description("Number of tracked locations waiting in the rewards pipeline's ring")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.rewards.pipeline.events", rewardsPipeline, RewardsPipeline::getProcessedEventCount)
+				.description("Number of tracked locations the rewards pipeline calculated rewards for")
+				.register(registry);
+		FunctionTimer.builder("tourGuide.rewards.pipeline.backpressure", rewardsPipeline,
+						RewardsPipeline::getBackpressureWaitCount, RewardsPipeline::getBackpressureWaitNanos, TimeUnit.NANOSECONDS)
+				.description("Waits of tracking for room in the full rewards pipeline")
+				.register(registry);
+		
+		bindUpstream(registry, upstreamResilience.getGps());
+		bindUpstream(registry, upstreamResilience.getRewards());
+		bindUpstream(registry, upstreamResilience.getPricing());
+	}
+	
+	private static void bindUpstream(MeterRegistry registry, UpstreamPolicy policy) {
+		String upstream = policy.getUpstream();
+		ConcurrencyLimit limit = policy.getBulkhead();
+		Gauge.builder("tourGuide.upstream.inFlight", limit, ConcurrencyLimit::getInFlight)
+				.tags("upstream", upstream)
+				.description("Number of calls to the upstream in flight")
+				.register(registry);
+		Gauge.builder("tourGuide.upstream.waiting", limit, ConcurrencyLimit::getWaiting)
+				.tags("upstream", upstream)
+				.description("Number of callers waiting for a permit to call the upstream")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.upstream.bulkhead.rejections", limit, ConcurrencyLimit::getRejectionCount)
+				.tags("upstream", upstream)
+				.description("Number of callers turned away after waiting too long for a permit")
+				.register(registry);
+		
+		Gauge.builder("tourGuide.upstream.circuit.state", policy.getCircuitBreaker(), c -> c.getState().ordinal())
+				.tags("upstream", upstream)
+				.description("State of the upstream's circuit breaker: 0 closed, 1 half-open, 2 open")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.upstream.circuit.openings", policy.getCircuitBreaker(), CircuitBreaker::getOpeningCount)
+				.tags("upstream", upstream)
+				.description("Number of times the upstream's circuit opened")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.upstream.circuit.rejections", policy.getCircuitBreaker(), CircuitBreaker::getRejectionCount)
+				.tags("upstream", upstream)
+				.description("Number of calls refused while the upstream's circuit was open")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.upstream.failures", policy, UpstreamPolicy::getFailureCount)
+				.tags("upstream", upstream)
+				.description("Number of upstream calls that failed")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.upstream.timeouts", policy, UpstreamPolicy::getTimeoutCount)
+				.tags("upstream", upstream)
+				.description("Number of upstream calls given up on after their timeout")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.upstream.hedges", policy, UpstreamPolicy::getHedgeCount)
+				.tags("upstream", upstream)
+				.description("Number of upstream calls sent again because the first was slow")
+				.register(registry);
+		FunctionCounter.builder("tourGuide.upstream.hedges.won", policy, UpstreamPolicy::getHedgeWinCount)
+				.tags("upstream", upstream)
+				.description("Number of hedged calls that answered first")
+				.register(registry);
+		Gauge.builder("tourGuide.upstream.hedge.delay", policy, p -> p.getHedgeDelayNanos() / 1e9)
+				.tags("upstream", upstream)
+				.baseUnit("seconds")
+				.description("Delay after which upstream calls are hedged, negative while not hedging")
+				.register(registry);
+	}
+	
+}
@@ -1,28 +1,185 @@
 package tourGuide;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import gpsUtil.GpsUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import rewardCentral.RewardCentral;
+import tourGuide.cache.CacheMetrics;
+import tourGuide.cache.CachingRewardClient;
+import tourGuide.cache.LruCache;
+import tourGuide.client.GpsClient;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.PricingClient;
+import tourGuide.client.RewardCentralClient;
+import tourGuide.client.CircuitBreaker;
+import tourGuide.client.ConcurrencyLimit;
+import tourGuide.client.LatencyWindow;
+import tourGuide.client.RewardClient;
+import tourGuide.client.TimedGpsClient;
+import tourGuide.client.TimedPricingClient;
+import tourGuide.client.TimedRewardClient;
+import tourGuide.client.TripPricerClient;
+import tourGuide.client.UpstreamLimits;
+import tourGuide.client.UpstreamPolicy;
+import tourGuide.client.UpstreamResilience;
+import tourGuide.repository.UserRepository;
+import tourGuide.service.RewardsBackfill;
 import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tripPricer.TripPricer;
 
+/**
+ * Wires the real gpsUtil, RewardCentral and TripPricer libraries, timed and behind their resilience policies.
+ * The "fake" profile swaps them for the in-process fakes of {@link FakeUpstreamModule}.
+ */
 @Configuration
 public class TourGuideModule {
 	
+	@Value("${tourGuide.rewards.cache.maximumSize}")
+	private int rewardPointsCacheMaximumSize;
+	
+	@Value("${tourGuide.rewards.cache.timeToLiveMinutes}")
+	private long rewardPointsCacheTimeToLive;
+	
+	@Value("${tourGuide.gps.maxConcurrency}")
+	private int gpsMaxConcurrency;
+	
+	@Value("${tourGuide.rewards.maxConcurrency}")
+	private int rewardsMaxConcurrency;
+	
+	@Value("${tourGuide.pricing.maxConcurrency}")
+	private int pricingMaxConcurrency;
+	
+	@Value("${tourGuide.upstream.bulkhead.maxWaitMillis}")
+	private long bulkheadMaxWait;
+	
+	@Value("${tourGuide.gps.timeoutMillis}")
+	private long gpsTimeout;
+	
+	@Value("${tourGuide.rewards.timeoutMillis}")
+	private long rewardsTimeout;
+	
+	@Value("${tourGuide.pricing.timeoutMillis}")
+	private long pricingTimeout;
+	
+	@Value("${tourGuide.upstream.circuitBreaker.windowSize}")
+	private int circuitBreakerWindowSize;
+	
+	@Value("${tourGuide.upstream.circuitBreaker.minimumCalls}")
+	private int circuitBreakerMinimumCalls;
+	
+	@Value("${tourGuide.upstream.circuitBreaker.failureRatePercent}")
+	private int circuitBreakerFailureRate;
+	
+	@Value("${tourGuide.upstream.circuitBreaker.openMillis}")
+	private long circuitBreakerOpenDuration;
+	
+	@Value("${tourGuide.upstream.circuitBreaker.probes}")
+	private int circuitBreakerProbes;
+	
+	@Value("${tourGuide.upstream.hedging.enabled}")
+	private boolean hedgingEnabled;
+	
+	@Value("${tourGuide.upstream.hedging.quantile}")
+	private double hedgingQuantile;
+	
+	@Value("${tourGuide.upstream.hedging.minDelayMillis}")
+	private long hedgingMinDelay;
+	
+	@Bean
+	@Profile("!fake")
+	public GpsClient getGpsClient(MeterRegistry meterRegistry) {
+		return getUpstreamResilience().protect(new TimedGpsClient(new GpsUtilClient(new GpsUtil()), meterRegistry));
+	}
+	
+	@Bean
+	@Profile("!fake")
+	public RewardClient getRewardClient(MeterRegistry meterRegistry) {
+		// cache hits don't take a permit, only the calls that reach RewardCentral do
+		RewardClient rewardClient = new TimedRewardClient(new RewardCentralClient(new RewardCentral()), meterRegistry);
+		return new CachingRewardClient(getUpstreamResilience().protect(rewardClient), getRewardPointsCache());
+	}
+	
+	@Bean
+	@Profile("!fake")
+	public PricingClient getPricingClient(MeterRegistry meterRegistry) {
+		return getUpstreamResilience().protect(new TimedPricingClient(new TripPricerClient(new TripPricer()), meterRegistry));
+	}
+	
+	@Bean
+	public UpstreamLimits getUpstreamLimits() {
+		return new UpstreamLimits(gpsMaxConcurrency, rewardsMaxConcurrency, pricingMaxConcurrency,
+				bulkheadMaxWait, TimeUnit.MILLISECONDS);
+	}
+	
+	@Bean
+	public UpstreamResilience getUpstreamResilience() {
+		UpstreamLimits upstreamLimits = getUpstreamLimits();
+		return new UpstreamResilience(
+				newUpstreamPolicy("gpsUtil", upstreamLimits.getGps(), gpsTimeout),
+				newUpstreamPolicy("rewardCentral", upstreamLimits.getRewards(), rewardsTimeout),
+				newUpstreamPolicy("tripPricer", upstreamLimits.getPricing(), pricingTimeout));
+	}
+	
 	@Bean
-	public GpsUtil getGpsUtil() {
-		return new GpsUtil();
+	public UpstreamsEndpoint getUpstreamsEndpoint() {
+		return new UpstreamsEndpoint(getUpstreamResilience());
 	}
 	
 	@Bean
-	public RewardsService getRewardsService() {
-		return new RewardsService(getGpsUtil(), getRewardCentral());
+	public RewardRulesEndpoint getRewardRulesEndpoint(RewardsService rewardsService, RewardsBackfill rewardsBackfill) {
+		return new RewardRulesEndpoint(rewardsService, rewardsBackfill);
 	}
 	
+	/**
+	 * Serves web requests on virtual threads too, so trip pricing and the other request-bound upstream calls
+	 * don't need a large Tomcat pool either.
+	 */
 	@Bean
-	public RewardCentral getRewardCentral() {
-		return new RewardCentral();
+	@ConditionalOnProperty(name = "tourGuide.execution.mode", havingValue = "virtual")
+	public TomcatProtocolHandlerCustomizer<?> getVirtualThreadRequestExecutor() {
+		return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+	}
+	
+	@Bean
+	public LruCache<CachingRewardClient.Key, Integer> getRewardPointsCache() {
+		return new LruCache<>(rewardPointsCacheMaximumSize, rewardPointsCacheTimeToLive, TimeUnit.MINUTES);
+	}
+	
+	@Bean
+	public MeterBinder getRewardPointsCacheMetrics() {
+		return new CacheMetrics(getRewardPointsCache(), "rewardPoints");
+	}
+	
+	/**
+	 * Binds the tourGuide.* meters once the application is ready rather than through a MeterBinder bean:
+	 * binder beans are built while the registry is, and the services they read need the registry for their clients.
+	 */
+	@Bean
+	public ApplicationListener<ApplicationReadyEvent> getTourGuideMetrics(MeterRegistry meterRegistry,
+			TourGuideService tourGuideService, RewardsService rewardsService, UserRepository userRepository) {
+		TourGuideMetrics tourGuideMetrics = new TourGuideMetrics(tourGuideService.tracker, rewardsService,
+				tourGuideService.getRewardsPipeline(), userRepository, getUpstreamResilience());
+		return event -> tourGuideMetrics.bindTo(meterRegistry);
+	}
+	
+	private UpstreamPolicy newUpstreamPolicy(String upstream, ConcurrencyLimit bulkhead, long timeout) {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(circuitBreakerWindowSize, circuitBreakerMinimumCalls,
+				circuitBreakerFailureRate, circuitBreakerOpenDuration, TimeUnit.MILLISECONDS, circuitBreakerProbes);
+		LatencyWindow latencies = hedgingEnabled ? new LatencyWindow(hedgingQuantile) : null;
+		return new UpstreamPolicy(upstream, bulkhead, circuitBreaker, latencies, hedgingMinDelay, timeout, TimeUnit.MILLISECONDS);
 	}
 	
 }
@@ -0,0 +1,52 @@
+package tourGuide;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import tourGuide.client.ConcurrencyLimit;
+import tourGuide.client.UpstreamPolicy;
+import tourGuide.client.UpstreamResilience;
+
+/**
+ * Actuator endpoint at /actuator/upstreams telling, for each upstream, the state of its circuit breaker,
+ * how full its bulkhead is, and how many of its calls failed, timed out or were hedged.
+ */
+@Endpoint(id = "upstreams")
+public class UpstreamsEndpoint {
+
+	private final UpstreamResilience upstreamResilience;
+	
+	public UpstreamsEndpoint(UpstreamResilience upstreamResilience) {
+		this.upstreamResilience = upstreamResilience;
+	}
+	
+	@ReadOperation
+	public Map<String, Map<String, Object>> upstreams() {
+		Map<String, Map<String, Object>> upstreams = new LinkedHashMap<>();
+		for(UpstreamPolicy policy : new UpstreamPolicy[] { upstreamResilience.getGps(), upstreamResilience.getRewards(), upstreamResilience.getPricing() }) {
+			ConcurrencyLimit bulkhead = policy.getBulkhead();
+			Map<String, Object> upstream = new LinkedHashMap<>();
+			upstream.put("circuit", policy.getCircuitBreaker().getState());
+			upstream.put("circuitOpenings", policy.getCircuitBreaker().getOpeningCount());
+			upstream.put("circuitRejections", policy.getCircuitBreaker().getRejectionCount());
+			upstream.put("maxConcurrency", bulkhead.getMaxConcurrency());
+			upstream.put("inFlight", bulkhead.getInFlight());
+			upstream.put("waiting", bulkhead.getWaiting());
+			upstream.put("bulkheadRejections", bulkhead.getRejectionCount());
+			upstream.put("calls", policy.getCallCount());
+			upstream.put("failures", policy.getFailureCount());
+			upstream.put("timeouts", policy.getTimeoutCount());
+			upstream.put("hedges", policy.getHedgeCount());
+			upstream.put("hedgesWon", policy.getHedgeWinCount());
+			long hedgeDelayNanos = policy.getHedgeDelayNanos();
+			upstream.put("hedgeDelayMillis", hedgeDelayNanos < 0 ? null : TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos));
+			upstreams.put(policy.getUpstream(), upstream);
+		}
+		return upstreams;
+	}
+	
+}
@@ -0,0 +1,49 @@
+package tourGuide.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes a cache's counters to Micrometer, hence to the actuator metrics endpoint,
+ * under the usual cache.* meter names tagged with the cache name.
+ */
+public class CacheMetrics implements MeterBinder {
+
+	private final LoadingCache<?, ?> cache;
+	private final String cacheName;
+	
+	public CacheMetrics(LoadingCache<?, ?> cache, String cacheName) {
+		this.cache = cache;
+		this.cacheName = cacheName;
+	}
+	
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("cache.gets", cache, c -> c.stats().getHitCount())
+				.tags("cache", cacheName, "result", "hit")
+				.description("Number of times a cache lookup returned a cached value")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", cache, c -> c.stats().getMissCount())
+				.tags("cache", cacheName, "result", "miss")
+				.description("Number of times a cache lookup had to load the value")
+				.register(registry);
+		FunctionCounter.builder("cache.evictions", cache, c -> c.stats().getEvictionCount())
+				.tags("cache", cacheName)
+				.description("Number of entries evicted to stay under the maximum size")
+				.register(registry);
+		Gauge.builder("cache.size", cache, LoadingCache::size)
+				.tags("cache", cacheName)
+				.description("Number of entries in the cache")
+				.register(registry);
+		FunctionTimer.builder("cache.load", cache, c -> c.stats().getLoadCount(), c -> c.stats().getTotalLoadTime(), TimeUnit.NANOSECONDS)
+				.tags("cache", cacheName)
+				.description("Time spent loading values into the cache")
+				.register(registry);
+	}
+	
+}
@@ -0,0 +1,61 @@
+package tourGuide.cache;
+
+/**
+ * Immutable snapshot of a cache's counters.
+ */
+public class CacheStats {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long loadSuccessCount;
+	private final long loadFailureCount;
+	private final long totalLoadTime;
+	private final long evictionCount;
+	
+	public CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+			long totalLoadTime, long evictionCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadSuccessCount = loadSuccessCount;
+		this.loadFailureCount = loadFailureCount;
+		this.totalLoadTime = totalLoadTime;
+		this.evictionCount = evictionCount;
+	}
+	
+	public long getHitCount() {
+		return hitCount;
+	}
+	
+	public long getMissCount() {
+		return missCount;
+	}
+	
+	public double getHitRate() {
+		long requestCount = hitCount + missCount;
+		return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+	}
+	
+	public long getLoadSuccessCount() {
+		return loadSuccessCount;
+	}
+	
+	public long getLoadFailureCount() {
+		return loadFailureCount;
+	}
+	
+	public long getLoadCount() {
+		return loadSuccessCount + loadFailureCount;
+	}
+	
+	/**
+	 * Time spent loading values, in nanoseconds.
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime;
+	}
+	
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+	
+}
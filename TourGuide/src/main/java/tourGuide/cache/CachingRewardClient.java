@@ -0,0 +1,54 @@
+package tourGuide.cache;
+
+import java.util.UUID;
+
+import tourGuide.client.RewardClient;
+
+/**
+ * RewardClient decorator remembering the points of each (attraction, user) pair,
+ * so the slow upstream is only called once per pair within the cache's time to live.
+ */
+public class CachingRewardClient implements RewardClient {
+
+	private final RewardClient rewardClient;
+	private final LoadingCache<Key, Integer> cache;
+	
+	public CachingRewardClient(RewardClient rewardClient, LoadingCache<Key, Integer> cache) {
+		this.rewardClient = rewardClient;
+		this.cache = cache;
+	}
+	
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return cache.get(new Key(attractionId, userId),
+				key -> rewardClient.getAttractionRewardPoints(key.attractionId, key.userId));
+	}
+	
+	public static final class Key {
+		private final UUID attractionId;
+		private final UUID userId;
+		
+		public Key(UUID attractionId, UUID userId) {
+			this.attractionId = attractionId;
+			this.userId = userId;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(this == o) {
+				return true;
+			}
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return attractionId.equals(other.attractionId) && userId.equals(other.userId);
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * attractionId.hashCode() + userId.hashCode();
+		}
+	}
+	
+}
@@ -0,0 +1,21 @@
+package tourGuide.cache;
+
+import java.util.function.Function;
+
+public interface LoadingCache<K, V> {
+
+	/**
+	 * Returns the cached value for the key, loading it with the given loader on a miss.
+	 * Concurrent callers asking for the same missing key share a single load.
+	 */
+	V get(K key, Function<? super K, ? extends V> loader);
+	
+	void invalidate(K key);
+	
+	void invalidateAll();
+	
+	long size();
+	
+	CacheStats stats();
+	
+}
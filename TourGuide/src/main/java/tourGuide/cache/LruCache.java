@@ -0,0 +1,215 @@
+package tourGuide.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache evicting the least recently used entry, whose entries expire a fixed time after being loaded.
+ * Each entry holds a future, so a value is loaded once by the first caller while the others wait for it,
+ * and the loading itself happens outside the lock. Entries still loading are never evicted, lest a second caller
+ * load them again, so a segment may briefly hold more than its share while many of its values are loading.
+ * Large caches are split into segments by key hash, each with its own lock and least recently used order,
+ * so lookups of different keys seldom wait for each other; caches of fewer than 128 entries keep a single one.
+ * Locks rather than monitors, so virtual threads waiting for a segment don't pin their carrier.
+ */
+public class LruCache<K, V> implements LoadingCache<K, V> {
+
+	private static final int MAX_SEGMENTS = 16;
+	private static final int MIN_SEGMENT_SIZE = 64;
+	
+	private final long timeToLive;
+	private final Segment<K, V>[] segments;
+	
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder loadSuccessCount = new LongAdder();
+	private final LongAdder loadFailureCount = new LongAdder();
+	private final LongAdder totalLoadTime = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+	
+	public LruCache(int maximumSize, long timeToLive, TimeUnit unit) {
+		if(maximumSize < 1) {
+			throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+		}
+		this.timeToLive = unit.toNanos(timeToLive);
+		int segmentCount = 1;
+		while(segmentCount < MAX_SEGMENTS && maximumSize / (2 * segmentCount) >= MIN_SEGMENT_SIZE) {
+			segmentCount *= 2;
+		}
+		@SuppressWarnings("unchecked")
+		Segment<K, V>[] segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+		for(int i = 0; i < segmentCount; i++) {
+			// the remainder goes to the first segments, so they add up to the maximum size
+			segments[i] = new Segment<>(maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0));
+		}
+		this.segments = segments;
+	}
+	
+	@Override
+	public V get(K key, Function<? super K, ? extends V> loader) {
+		Segment<K, V> segment = segmentFor(key);
+		Entry<V> entry;
+		boolean loading = false;
+		segment.lock.lock();
+		try {
+			entry = segment.entries.get(key);
+			if(entry != null && entry.isExpired(System.nanoTime(), timeToLive)) {
+				segment.entries.remove(key);
+				entry = null;
+			}
+			if(entry == null) {
+				entry = new Entry<>();
+				segment.entries.put(key, entry);
+				loading = true;
+				evictionCount.add(segment.evictOverflow());
+			}
+		} finally {
+			segment.lock.unlock();
+		}
+		
+		if(!loading) {
+			hitCount.increment();
+			return entry.await();
+		}
+		missCount.increment();
+		long start = System.nanoTime();
+		try {
+			V value = loader.apply(key);
+			entry.complete(value);
+			loadSuccessCount.increment();
+			return value;
+		} catch (Throwable e) {
+			// whatever went wrong, the callers waiting for the entry are let go and the next one loads again
+			segment.lock.lock();
+			try {
+				segment.entries.remove(key, entry);
+			} finally {
+				segment.lock.unlock();
+			}
+			loadFailureCount.increment();
+			entry.fail(e);
+			throw e;
+		} finally {
+			totalLoadTime.add(System.nanoTime() - start);
+		}
+	}
+	
+	@Override
+	public void invalidate(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		segment.lock.lock();
+		try {
+			segment.entries.remove(key);
+		} finally {
+			segment.lock.unlock();
+		}
+	}
+	
+	@Override
+	public void invalidateAll() {
+		for(Segment<K, V> segment : segments) {
+			segment.lock.lock();
+			try {
+				segment.entries.clear();
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+	}
+	
+	@Override
+	public long size() {
+		long size = 0;
+		for(Segment<K, V> segment : segments) {
+			segment.lock.lock();
+			try {
+				size += segment.entries.size();
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		return size;
+	}
+	
+	@Override
+	public CacheStats stats() {
+		return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(), loadFailureCount.sum(),
+				totalLoadTime.sum(), evictionCount.sum());
+	}
+	
+	private Segment<K, V> segmentFor(K key) {
+		int hash = key.hashCode();
+		// spread the high bits, UUID and String hashes vary mostly there for close keys
+		return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+	}
+	
+	private static final class Segment<K, V> {
+		final ReentrantLock lock = new ReentrantLock();
+		// access ordered, so the eldest entry is the least recently used one
+		final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+		final int maximumSize;
+		
+		Segment(int maximumSize) {
+			this.maximumSize = maximumSize;
+		}
+		
+		// called holding the lock, returns the number of entries evicted
+		int evictOverflow() {
+			int evicted = 0;
+			Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+			while(entries.size() > maximumSize && eldest.hasNext()) {
+				if(eldest.next().getValue().isLoaded()) {
+					eldest.remove();
+					evicted++;
+				}
+			}
+			return evicted;
+		}
+	}
+	
+	private static final class Entry<V> {
+		private final CompletableFuture<V> value = new CompletableFuture<>();
+		// 0 until loaded, a value being loaded never expires
+		private volatile long loadedAt;
+		
+		void complete(V loaded) {
+			loadedAt = System.nanoTime() | 1;
+			value.complete(loaded);
+		}
+		
+		void fail(Throwable e) {
+			value.completeExceptionally(e);
+		}
+		
+		boolean isLoaded() {
+			return loadedAt != 0;
+		}
+		
+		boolean isExpired(long now, long timeToLive) {
+			long loaded = loadedAt;
+			return loaded != 0 && now - loaded >= timeToLive;
+		}
+		
+		V await() {
+			try {
+				return value.join();
+			} catch (CompletionException e) {
+				if(e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if(e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw e;
+			}
+		}
+	}
+	
+}
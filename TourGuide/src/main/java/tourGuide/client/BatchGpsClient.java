@@ -0,0 +1,18 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * A gpsUtil able to locate many users in one call, paying the per-call overhead once.
+ */
+public interface BatchGpsClient extends GpsClient {
+
+	/**
+	 * Locations of the users, in the order of their ids.
+	 */
+	List<VisitedLocation> getUserLocations(List<UUID> userIds);
+	
+}
@@ -0,0 +1,166 @@
+package tourGuide.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.helper.DaemonThreadFactory;
+
+/**
+ * Collects the location lookups made at about the same time into micro-batches, one upstream call each.
+ * A batch is sent once it holds maxBatchSize lookups, or maxDelay after its first lookup, whichever comes first,
+ * and its locations are handed back to each caller. Callers wait for their batch, on virtual threads this is cheap.
+ * Batches are sent on virtual threads of their own, so a slow batch doesn't hold up the next ones.
+ */
+public class BatchingGpsClient implements GpsClient, AutoCloseable {
+
+	private final BatchGpsClient upstream;
+	private final int maxBatchSize;
+	private final long maxDelayNanos;
+	private final ScheduledExecutorService batchTimer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("gps-batch-timer"));
+	private final ExecutorService batchSender = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gps-batch-", 1).factory());
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder lookups = new LongAdder();
+	// guarded by this
+	private List<PendingLookup> batch;
+	private long batchNumber;
+
+	public BatchingGpsClient(BatchGpsClient upstream, int maxBatchSize, long maxDelay, TimeUnit unit) {
+		if(maxBatchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+		}
+		this.upstream = upstream;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+		this.batch = new ArrayList<>(maxBatchSize);
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		try {
+			return getUserLocationAsync(userId).join();
+		} catch (CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds the lookup to the current batch. The future completes when the batch's upstream call returns.
+	 */
+	public CompletableFuture<VisitedLocation> getUserLocationAsync(UUID userId) {
+		CompletableFuture<VisitedLocation> location = new CompletableFuture<>();
+		List<PendingLookup> fullBatch = null;
+		synchronized(this) {
+			batch.add(new PendingLookup(userId, location));
+			if(batch.size() >= maxBatchSize) {
+				fullBatch = takeBatch();
+			} else if(batch.size() == 1) {
+				long number = batchNumber;
+				batchTimer.schedule(() -> sendIfStillOpen(number), maxDelayNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+		lookups.increment();
+		if(fullBatch != null) {
+			send(fullBatch);
+		}
+		return location;
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return upstream.getAttractions();
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Upstream calls made, one per batch.
+	 */
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+	public long getLookupCount() {
+		return lookups.sum();
+	}
+
+	/**
+	 * Sends the lookups still waiting for their batch to fill, then stops.
+	 */
+	@Override
+	public void close() {
+		List<PendingLookup> lastBatch;
+		synchronized(this) {
+			lastBatch = takeBatch();
+		}
+		if(!lastBatch.isEmpty()) {
+			send(lastBatch);
+		}
+		batchTimer.shutdownNow();
+		batchSender.shutdown();
+	}
+
+	private void sendIfStillOpen(long number) {
+		List<PendingLookup> dueBatch;
+		synchronized(this) {
+			// the batch filled up and was sent before its delay elapsed
+			if(number != batchNumber || batch.isEmpty()) {
+				return;
+			}
+			dueBatch = takeBatch();
+		}
+		send(dueBatch);
+	}
+
+	private List<PendingLookup> takeBatch() {
+		List<PendingLookup> taken = batch;
+		batch = new ArrayList<>(maxBatchSize);
+		batchNumber++;
+		return taken;
+	}
+
+	private void send(List<PendingLookup> lookupBatch) {
+		batches.increment();
+		batchSender.execute(() -> {
+			List<UUID> userIds = new ArrayList<>(lookupBatch.size());
+			for(PendingLookup lookup : lookupBatch) {
+				userIds.add(lookup.userId);
+			}
+			try {
+				List<VisitedLocation> locations = upstream.getUserLocations(userIds);
+				for(int i = 0; i < lookupBatch.size(); i++) {
+					lookupBatch.get(i).location.complete(locations.get(i));
+				}
+			} catch (RuntimeException e) {
+				for(PendingLookup lookup : lookupBatch) {
+					lookup.location.completeExceptionally(e);
+				}
+			}
+		});
+	}
+
+	private static final class PendingLookup {
+		final UUID userId;
+		final CompletableFuture<VisitedLocation> location;
+
+		PendingLookup(UUID userId, CompletableFuture<VisitedLocation> location) {
+			this.userId = userId;
+			this.location = location;
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package tourGuide.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stops calling an upstream that keeps failing, so callers fail fast instead of waiting on it.
+ * Closed, it records the outcome of the last windowSize calls and opens once at least minimumCalls
+ * of them were made and failureRatePercent of them failed. Open, it refuses every call for openDuration,
+ * then lets probeCount probe calls through half-open: it closes again once they all succeed,
+ * and opens again on the first that fails.
+ */
+public class CircuitBreaker {
+
+	public enum State { CLOSED, HALF_OPEN, OPEN }
+	
+	private final int failureRatePercent;
+	private final int minimumCalls;
+	private final long openNanos;
+	private final int probeCount;
+	private final LongAdder rejections = new LongAdder();
+	private final LongAdder openings = new LongAdder();
+	// guarded by this
+	private final boolean[] failures;
+	private int next;
+	private int recordedCount;
+	private int failureCount;
+	private State state = State.CLOSED;
+	private long openedAt;
+	private int probesStarted;
+	private int probesSucceeded;
+	
+	public CircuitBreaker(int windowSize, int minimumCalls, int failureRatePercent, long openDuration, TimeUnit unit, int probeCount) {
+		if(windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || probeCount < 1) {
+			throw new IllegalArgumentException("Invalid circuit breaker window: " + windowSize + " calls, "
+					+ minimumCalls + " minimum, " + probeCount + " probes");
+		}
+		this.failures = new boolean[windowSize];
+		this.minimumCalls = minimumCalls;
+		this.failureRatePercent = failureRatePercent;
+		this.openNanos = unit.toNanos(openDuration);
+		this.probeCount = probeCount;
+	}
+	
+	/**
+	 * Whether a call may be made now. Every permitted call must then be reported with onSuccess, onFailure or onIgnored.
+	 */
+	public synchronized boolean tryAcquire() {
+		if(state == State.OPEN) {
+			if(System.nanoTime() - openedAt < openNanos) {
+				rejections.increment();
+				return false;
+			}
+			state = State.HALF_OPEN;
+			probesStarted = 0;
+			probesSucceeded = 0;
+		}
+		if(state == State.HALF_OPEN) {
+			if(probesStarted >= probeCount) {
+				rejections.increment();
+				return false;
+			}
+			probesStarted++;
+		}
+		return true;
+	}
+	
+	public synchronized void onSuccess() {
+		if(state == State.HALF_OPEN) {
+			if(++probesSucceeded >= probeCount) {
+				close();
+			}
+		} else if(state == State.CLOSED) {
+			record(false);
+		}
+	}
+	
+	public synchronized void onFailure() {
+		if(state == State.HALF_OPEN) {
+			open();
+		} else if(state == State.CLOSED) {
+			record(true);
+			if(recordedCount >= minimumCalls && failureCount * 100 >= failureRatePercent * recordedCount) {
+				open();
+			}
+		}
+	}
+	
+	/**
+	 * The call was given up for reasons of the caller's, it tells nothing about the upstream.
+	 */
+	public synchronized void onIgnored() {
+		if(state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+			probesStarted--;
+		}
+	}
+	
+	public synchronized State getState() {
+		if(state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+			// the next call will probe
+			return State.HALF_OPEN;
+		}
+		return state;
+	}
+	
+	/**
+	 * Calls refused while open or half-open.
+	 */
+	public long getRejectionCount() {
+		return rejections.sum();
+	}
+	
+	public long getOpeningCount() {
+		return openings.sum();
+	}
+	
+	private void record(boolean failure) {
+		if(recordedCount == failures.length) {
+			if(failures[next]) {
+				failureCount--;
+			}
+		} else {
+			recordedCount++;
+		}
+		failures[next] = failure;
+		if(failure) {
+			failureCount++;
+		}
+		next = (next + 1) % failures.length;
+	}
+	
+	private void open() {
+		state = State.OPEN;
+		openedAt = System.nanoTime();
+		openings.increment();
+	}
+	
+	private void close() {
+		state = State.CLOSED;
+		next = 0;
+		recordedCount = 0;
+		failureCount = 0;
+	}
+	
+}
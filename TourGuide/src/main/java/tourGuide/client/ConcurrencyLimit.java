@@ -0,0 +1,97 @@
+package tourGuide.client;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many calls to one upstream are in flight at once, callers beyond the cap wait their turn.
+ * Waiting only parks the calling thread, which costs next to nothing on virtual threads.
+ * A caller that waited maxWait without a permit is turned away, so a stalled upstream doesn't pile up
+ * every caller of the application behind it.
+ */
+public class ConcurrencyLimit {
+
+	private final Semaphore permits;
+	private final int maxConcurrency;
+	private final long maxWaitNanos;
+	private final LongAdder rejections = new LongAdder();
+	
+	public ConcurrencyLimit(int maxConcurrency) {
+		this(maxConcurrency, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+	
+	public ConcurrencyLimit(int maxConcurrency, long maxWait, TimeUnit unit) {
+		if(maxConcurrency < 1) {
+			throw new IllegalArgumentException("Concurrency limit must be positive: " + maxConcurrency);
+		}
+		this.permits = new Semaphore(maxConcurrency, true);
+		this.maxConcurrency = maxConcurrency;
+		this.maxWaitNanos = unit.toNanos(maxWait);
+	}
+	
+	public <T> T call(Supplier<T> upstreamCall) {
+		acquire();
+		try {
+			return upstreamCall.get();
+		} finally {
+			release();
+		}
+	}
+	
+	/**
+	 * Waits up to maxWait for a permit, to be released once the call is over.
+	 * @throws UpstreamUnavailableException if none came free in time
+	 */
+	public void acquire() {
+		try {
+			if(maxWaitNanos == Long.MAX_VALUE) {
+				permits.acquire();
+			} else if(!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+				rejections.increment();
+				throw new UpstreamUnavailableException("No upstream permit after " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for an upstream permit", e);
+		}
+	}
+	
+	/**
+	 * Takes a permit only if one is free right now.
+	 */
+	public boolean tryAcquire() {
+		return permits.tryAcquire();
+	}
+	
+	public void release() {
+		permits.release();
+	}
+	
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+	
+	/**
+	 * Calls currently in flight.
+	 */
+	public int getInFlight() {
+		return maxConcurrency - permits.availablePermits();
+	}
+	
+	/**
+	 * Estimate of the callers waiting for a permit.
+	 */
+	public int getWaiting() {
+		return permits.getQueueLength();
+	}
+	
+	/**
+	 * Callers turned away after waiting maxWait for a permit.
+	 */
+	public long getRejectionCount() {
+		return rejections.sum();
+	}
+	
+}
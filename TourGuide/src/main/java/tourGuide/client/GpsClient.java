@@ -0,0 +1,18 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Locates users and lists the attractions, as gpsUtil does.
+ */
+public interface GpsClient {
+
+	VisitedLocation getUserLocation(UUID userId);
+	
+	List<Attraction> getAttractions();
+	
+}
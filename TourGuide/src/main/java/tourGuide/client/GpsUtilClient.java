@@ -0,0 +1,28 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+public class GpsUtilClient implements GpsClient {
+
+	private final GpsUtil gpsUtil;
+	
+	public GpsUtilClient(GpsUtil gpsUtil) {
+		this.gpsUtil = gpsUtil;
+	}
+	
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		return gpsUtil.getUserLocation(userId);
+	}
+	
+	@Override
+	public List<Attraction> getAttractions() {
+		return gpsUtil.getAttractions();
+	}
+	
+}
@@ -0,0 +1,60 @@
+package tourGuide.client;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A quantile of an upstream's latency over its most recent calls.
+ * Latencies are kept in a ring of the last SIZE calls and the quantile is recomputed every RECOMPUTE_INTERVAL calls,
+ * so reading it is free and recording costs a sort of the ring only once in a while.
+ */
+public class LatencyWindow {
+
+	private static final int SIZE = 1024;
+	private static final int RECOMPUTE_INTERVAL = 128;
+	// fewer samples tell little about the tail
+	private static final int MIN_SAMPLES = 100;
+	
+	private final double quantile;
+	private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+	private final AtomicLong count = new AtomicLong();
+	private volatile long quantileNanos = -1;
+	
+	public LatencyWindow(double quantile) {
+		if(quantile <= 0 || quantile > 1) {
+			throw new IllegalArgumentException("Quantile out of range: " + quantile);
+		}
+		this.quantile = quantile;
+	}
+	
+	public void record(long nanos) {
+		long position = count.getAndIncrement();
+		samples.set((int) (position % SIZE), nanos);
+		long recorded = position + 1;
+		if(recorded == MIN_SAMPLES || recorded > MIN_SAMPLES && recorded % RECOMPUTE_INTERVAL == 0) {
+			recompute((int) Math.min(recorded, SIZE));
+		}
+	}
+	
+	/**
+	 * The quantile of the recent latencies, or -1 until enough calls were recorded.
+	 */
+	public long getQuantileNanos() {
+		return quantileNanos;
+	}
+	
+	public double getQuantile() {
+		return quantile;
+	}
+	
+	private void recompute(int sampleCount) {
+		long[] sorted = new long[sampleCount];
+		for(int i = 0; i < sampleCount; i++) {
+			sorted[i] = samples.get(i);
+		}
+		Arrays.sort(sorted);
+		quantileNanos = sorted[Math.max(0, (int) Math.ceil(quantile * sampleCount) - 1)];
+	}
+	
+}
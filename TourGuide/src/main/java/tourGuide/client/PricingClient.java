@@ -0,0 +1,15 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+
+/**
+ * Prices trips with the partner providers, as TripPricer does.
+ */
+public interface PricingClient {
+
+	List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints);
+	
+}
@@ -0,0 +1,29 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+public class ResilientGpsClient implements GpsClient {
+
+	private final GpsClient gpsClient;
+	private final UpstreamPolicy policy;
+	
+	public ResilientGpsClient(GpsClient gpsClient, UpstreamPolicy policy) {
+		this.gpsClient = gpsClient;
+		this.policy = policy;
+	}
+	
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		return policy.call(() -> gpsClient.getUserLocation(userId));
+	}
+	
+	@Override
+	public List<Attraction> getAttractions() {
+		return policy.call(gpsClient::getAttractions);
+	}
+	
+}
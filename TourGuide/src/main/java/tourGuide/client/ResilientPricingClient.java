@@ -0,0 +1,23 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+
+public class ResilientPricingClient implements PricingClient {
+
+	private final PricingClient pricingClient;
+	private final UpstreamPolicy policy;
+	
+	public ResilientPricingClient(PricingClient pricingClient, UpstreamPolicy policy) {
+		this.pricingClient = pricingClient;
+		this.policy = policy;
+	}
+	
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+		return policy.call(() -> pricingClient.getPrice(apiKey, attractionId, adults, children, nightsStay, rewardsPoints));
+	}
+	
+}
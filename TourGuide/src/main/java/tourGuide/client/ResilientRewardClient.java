@@ -0,0 +1,20 @@
+package tourGuide.client;
+
+import java.util.UUID;
+
+public class ResilientRewardClient implements RewardClient {
+
+	private final RewardClient rewardClient;
+	private final UpstreamPolicy policy;
+	
+	public ResilientRewardClient(RewardClient rewardClient, UpstreamPolicy policy) {
+		this.rewardClient = rewardClient;
+		this.policy = policy;
+	}
+	
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return policy.call(() -> rewardClient.getAttractionRewardPoints(attractionId, userId));
+	}
+	
+}
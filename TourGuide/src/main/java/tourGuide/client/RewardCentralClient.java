@@ -0,0 +1,20 @@
+package tourGuide.client;
+
+import java.util.UUID;
+
+import rewardCentral.RewardCentral;
+
+public class RewardCentralClient implements RewardClient {
+
+	private final RewardCentral rewardCentral;
+	
+	public RewardCentralClient(RewardCentral rewardCentral) {
+		this.rewardCentral = rewardCentral;
+	}
+	
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return rewardCentral.getAttractionRewardPoints(attractionId, userId);
+	}
+	
+}
@@ -0,0 +1,12 @@
+package tourGuide.client;
+
+import java.util.UUID;
+
+/**
+ * Tells how many points a user earns for visiting an attraction, as RewardCentral does.
+ */
+public interface RewardClient {
+
+	int getAttractionRewardPoints(UUID attractionId, UUID userId);
+	
+}
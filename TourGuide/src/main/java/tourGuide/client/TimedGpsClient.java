@@ -0,0 +1,33 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+public class TimedGpsClient implements GpsClient {
+
+	private final GpsClient gpsClient;
+	private final Timer getUserLocationTimer;
+	private final Timer getAttractionsTimer;
+	
+	public TimedGpsClient(GpsClient gpsClient, MeterRegistry registry) {
+		this.gpsClient = gpsClient;
+		this.getUserLocationTimer = UpstreamTimers.timer(registry, "gpsUtil", "getUserLocation");
+		this.getAttractionsTimer = UpstreamTimers.timer(registry, "gpsUtil", "getAttractions");
+	}
+	
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		return getUserLocationTimer.record(() -> gpsClient.getUserLocation(userId));
+	}
+	
+	@Override
+	public List<Attraction> getAttractions() {
+		return getAttractionsTimer.record(gpsClient::getAttractions);
+	}
+	
+}
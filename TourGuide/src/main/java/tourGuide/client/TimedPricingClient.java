@@ -0,0 +1,25 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import tripPricer.Provider;
+
+public class TimedPricingClient implements PricingClient {
+
+	private final PricingClient pricingClient;
+	private final Timer timer;
+	
+	public TimedPricingClient(PricingClient pricingClient, MeterRegistry registry) {
+		this.pricingClient = pricingClient;
+		this.timer = UpstreamTimers.timer(registry, "tripPricer", "getPrice");
+	}
+	
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+		return timer.record(() -> pricingClient.getPrice(apiKey, attractionId, adults, children, nightsStay, rewardsPoints));
+	}
+	
+}
@@ -0,0 +1,23 @@
+package tourGuide.client;
+
+import java.util.UUID;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+public class TimedRewardClient implements RewardClient {
+
+	private final RewardClient rewardClient;
+	private final Timer timer;
+	
+	public TimedRewardClient(RewardClient rewardClient, MeterRegistry registry) {
+		this.rewardClient = rewardClient;
+		this.timer = UpstreamTimers.timer(registry, "rewardCentral", "getAttractionRewardPoints");
+	}
+	
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return timer.record(() -> rewardClient.getAttractionRewardPoints(attractionId, userId));
+	}
+	
+}
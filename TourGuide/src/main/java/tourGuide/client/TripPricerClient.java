@@ -0,0 +1,22 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+
+public class TripPricerClient implements PricingClient {
+
+	private final TripPricer tripPricer;
+	
+	public TripPricerClient(TripPricer tripPricer) {
+		this.tripPricer = tripPricer;
+	}
+	
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+		return tripPricer.getPrice(apiKey, attractionId, adults, children, nightsStay, rewardsPoints);
+	}
+	
+}
@@ -0,0 +1,39 @@
+package tourGuide.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit of each upstream, the bulkhead of its {@link UpstreamPolicy}.
+ */
+public class UpstreamLimits {
+
+	private final ConcurrencyLimit gps;
+	private final ConcurrencyLimit rewards;
+	private final ConcurrencyLimit pricing;
+	
+	public UpstreamLimits(int gpsMaxConcurrency, int rewardsMaxConcurrency, int pricingMaxConcurrency) {
+		this(gpsMaxConcurrency, rewardsMaxConcurrency, pricingMaxConcurrency, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * @param maxWait how long callers wait for a permit of any upstream before they're turned away
+	 */
+	public UpstreamLimits(int gpsMaxConcurrency, int rewardsMaxConcurrency, int pricingMaxConcurrency, long maxWait, TimeUnit unit) {
+		this.gps = new ConcurrencyLimit(gpsMaxConcurrency, maxWait, unit);
+		this.rewards = new ConcurrencyLimit(rewardsMaxConcurrency, maxWait, unit);
+		this.pricing = new ConcurrencyLimit(pricingMaxConcurrency, maxWait, unit);
+	}
+	
+	public ConcurrencyLimit getGps() {
+		return gps;
+	}
+	
+	public ConcurrencyLimit getRewards() {
+		return rewards;
+	}
+	
+	public ConcurrencyLimit getPricing() {
+		return pricing;
+	}
+	
+}
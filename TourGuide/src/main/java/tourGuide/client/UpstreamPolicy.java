@@ -0,0 +1,209 @@
+package tourGuide.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * How the calls to one upstream are made, so a slow or failing upstream only holds up its own callers:
+ * <ul>
+ * <li>its circuit breaker turns callers away at once while the upstream keeps failing,</li>
+ * <li>its bulkhead, the upstream's concurrency limit, caps the calls in flight and how long callers wait for one,</li>
+ * <li>a caller gives up on a call after the timeout, counted as a failure,</li>
+ * <li>a call still unanswered after the hedging quantile of the recent latencies is sent again, if the bulkhead
+ * has a permit free, and the first answer wins. With the 95th percentile about one call in twenty is hedged,
+ * which trims the tail latency at the cost of about 5% more upstream calls.</li>
+ * </ul>
+ * Upstream libraries block and can't be interrupted, so each call runs on a virtual thread of its own,
+ * and a call given up on keeps its permit until it actually returns.
+ * Closing the policy interrupts the calls still running, later calls fail.
+ */
+public class UpstreamPolicy implements AutoCloseable {
+
+	private final String upstream;
+	private final ConcurrencyLimit bulkhead;
+	private final CircuitBreaker circuitBreaker;
+	// null when not hedging
+	private final LatencyWindow latencies;
+	private final long minHedgeDelayNanos;
+	private final long timeoutNanos;
+	private final ExecutorService callExecutor;
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder hedgeWins = new LongAdder();
+	
+	public UpstreamPolicy(String upstream, ConcurrencyLimit bulkhead, CircuitBreaker circuitBreaker, long timeout, TimeUnit unit) {
+		this(upstream, bulkhead, circuitBreaker, null, 0, timeout, unit);
+	}
+	
+	/**
+	 * @param latencies the latencies whose quantile delays the hedged calls, null not to hedge
+	 * @param minHedgeDelay calls are never hedged sooner than this, in the same unit as the timeout
+	 */
+	public UpstreamPolicy(String upstream, ConcurrencyLimit bulkhead, CircuitBreaker circuitBreaker,
+			LatencyWindow latencies, long minHedgeDelay, long timeout, TimeUnit unit) {
+		this.upstream = upstream;
+		this.bulkhead = bulkhead;
+		this.circuitBreaker = circuitBreaker;
+		this.latencies = latencies;
+		this.minHedgeDelayNanos = unit.toNanos(minHedgeDelay);
+		this.timeoutNanos = unit.toNanos(timeout);
+		this.callExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(upstream + "-call-", 1).factory());
+	}
+	
+	/**
+	 * @throws UpstreamUnavailableException if the circuit is open, no permit came free in time or the call timed out
+	 */
+	public <T> T call(Supplier<T> upstreamCall) {
+		if(!circuitBreaker.tryAcquire()) {
+			throw new UpstreamUnavailableException(upstream + " circuit is open");
+		}
+		try {
+			bulkhead.acquire();
+		} catch (RuntimeException e) {
+			// a full bulkhead says the caller is overloaded, not the upstream
+			circuitBreaker.onIgnored();
+			throw e;
+		}
+		calls.increment();
+		CompletableFuture<T> answer = new CompletableFuture<>();
+		AtomicInteger running = new AtomicInteger();
+		long deadline = System.nanoTime() + timeoutNanos;
+		start(upstreamCall, answer, running, false);
+		try {
+			T value;
+			long hedgeDelayNanos = getHedgeDelayNanos();
+			if(hedgeDelayNanos >= 0 && hedgeDelayNanos < timeoutNanos) {
+				try {
+					value = answer.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					if(bulkhead.tryAcquire()) {
+						hedges.increment();
+						start(upstreamCall, answer, running, true);
+					}
+					value = answer.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				}
+			} else {
+				value = answer.get(timeoutNanos, TimeUnit.NANOSECONDS);
+			}
+			circuitBreaker.onSuccess();
+			return value;
+		} catch (TimeoutException e) {
+			timeouts.increment();
+			circuitBreaker.onFailure();
+			throw new UpstreamUnavailableException(upstream + " didn't answer within "
+					+ TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms");
+		} catch (ExecutionException e) {
+			failures.increment();
+			circuitBreaker.onFailure();
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new UpstreamUnavailableException(upstream + " call failed", e.getCause());
+		} catch (InterruptedException e) {
+			circuitBreaker.onIgnored();
+			Thread.currentThread().interrupt();
+			throw new UpstreamUnavailableException("Interrupted while calling " + upstream, e);
+		}
+	}
+	
+	/**
+	 * How long a call waits before it is hedged, or -1 if it isn't.
+	 */
+	public long getHedgeDelayNanos() {
+		if(latencies == null) {
+			return -1;
+		}
+		long quantileNanos = latencies.getQuantileNanos();
+		return quantileNanos < 0 ? -1 : Math.max(quantileNanos, minHedgeDelayNanos);
+	}
+	
+	public String getUpstream() {
+		return upstream;
+	}
+	
+	public ConcurrencyLimit getBulkhead() {
+		return bulkhead;
+	}
+	
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+	
+	/**
+	 * Calls made, hedges excluded.
+	 */
+	public long getCallCount() {
+		return calls.sum();
+	}
+	
+	public long getFailureCount() {
+		return failures.sum();
+	}
+	
+	public long getTimeoutCount() {
+		return timeouts.sum();
+	}
+	
+	public long getHedgeCount() {
+		return hedges.sum();
+	}
+	
+	/**
+	 * Hedges that answered before the call they backed up.
+	 */
+	public long getHedgeWinCount() {
+		return hedgeWins.sum();
+	}
+	
+	@Override
+	public void close() {
+		callExecutor.shutdownNow();
+	}
+	
+	// runs with a permit taken, released once the upstream returns
+	private <T> void start(Supplier<T> upstreamCall, CompletableFuture<T> answer, AtomicInteger running, boolean hedge) {
+		running.incrementAndGet();
+		try {
+			execute(upstreamCall, answer, running, hedge);
+		} catch (RejectedExecutionException e) {
+			// the policy is closed, the call never started
+			bulkhead.release();
+			if(running.decrementAndGet() == 0) {
+				answer.completeExceptionally(new UpstreamUnavailableException(upstream + " policy is closed", e));
+			}
+		}
+	}
+	
+	private <T> void execute(Supplier<T> upstreamCall, CompletableFuture<T> answer, AtomicInteger running, boolean hedge) {
+		callExecutor.execute(() -> {
+			long start = System.nanoTime();
+			try {
+				T value = upstreamCall.get();
+				if(latencies != null) {
+					latencies.record(System.nanoTime() - start);
+				}
+				if(answer.complete(value) && hedge) {
+					hedgeWins.increment();
+				}
+			} catch (RuntimeException e) {
+				// the call fails only once neither it nor its hedge can answer
+				if(running.decrementAndGet() == 0) {
+					answer.completeExceptionally(e);
+				}
+			} finally {
+				bulkhead.release();
+			}
+		});
+	}
+	
+}
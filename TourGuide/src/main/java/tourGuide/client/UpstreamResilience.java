@@ -0,0 +1,51 @@
+package tourGuide.client;
+
+/**
+ * Policy of each upstream, shared by whichever clients are wired to it.
+ * Protected clients take their upstream's permits themselves, they aren't to be limited as well.
+ * Closing it closes the policies, the protected clients can't be called any more.
+ */
+public class UpstreamResilience implements AutoCloseable {
+
+	private final UpstreamPolicy gps;
+	private final UpstreamPolicy rewards;
+	private final UpstreamPolicy pricing;
+	
+	public UpstreamResilience(UpstreamPolicy gps, UpstreamPolicy rewards, UpstreamPolicy pricing) {
+		this.gps = gps;
+		this.rewards = rewards;
+		this.pricing = pricing;
+	}
+	
+	public UpstreamPolicy getGps() {
+		return gps;
+	}
+	
+	public UpstreamPolicy getRewards() {
+		return rewards;
+	}
+	
+	public UpstreamPolicy getPricing() {
+		return pricing;
+	}
+	
+	public GpsClient protect(GpsClient gpsClient) {
+		return new ResilientGpsClient(gpsClient, gps);
+	}
+	
+	public RewardClient protect(RewardClient rewardClient) {
+		return new ResilientRewardClient(rewardClient, rewards);
+	}
+	
+	public PricingClient protect(PricingClient pricingClient) {
+		return new ResilientPricingClient(pricingClient, pricing);
+	}
+	
+	@Override
+	public void close() {
+		gps.close();
+		rewards.close();
+		pricing.close();
+	}
+	
+}
@@ -0,0 +1,23 @@
+package tourGuide.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency histograms of the upstream calls, one timer per upstream operation
+ * under tourGuide.upstream.calls, so their tail latency can be read from Prometheus.
+ */
+final class UpstreamTimers {
+
+	private UpstreamTimers() {
+	}
+	
+	static Timer timer(MeterRegistry registry, String upstream, String operation) {
+		return Timer.builder("tourGuide.upstream.calls")
+				.tags("upstream", upstream, "operation", operation)
+				.description("Latency of the calls to an upstream library, waiting for a permit excluded")
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+	
+}
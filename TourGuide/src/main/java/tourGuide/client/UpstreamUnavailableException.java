@@ -0,0 +1,18 @@
+package tourGuide.client;
+
+/**
+ * An upstream call that was not made or not answered: its circuit is open, its bulkhead is full or it timed out.
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+	
+	public UpstreamUnavailableException(String message) {
+		super(message);
+	}
+	
+	public UpstreamUnavailableException(String message, Throwable cause) {
+		super(message, cause);
+	}
+	
+}
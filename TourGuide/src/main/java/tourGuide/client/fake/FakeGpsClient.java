@@ -0,0 +1,76 @@
+package tourGuide.client.fake;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.client.BatchGpsClient;
+
+/**
+ * In-process gpsUtil with configurable latency.
+ * A user's n-th location only depends on the seed: each user has a home, where the first lookup finds them
+ * and about one lookup in three after that, and is found anywhere within about 7 miles of it otherwise.
+ * gpsUtil's own attractions are fetched once and served with the same ids on every call.
+ * It also stands in for a batch-capable gpsUtil: a batch of lookups costs one latency, as one call would.
+ */
+public class FakeGpsClient implements BatchGpsClient {
+
+	private final long seed;
+	private final Latency latency;
+	private final SplittableRandom latencyRandom;
+	private final List<Attraction> attractions;
+	private final ConcurrentMap<UUID, AtomicLong> lookups = new ConcurrentHashMap<>();
+	
+	public FakeGpsClient(long seed, Latency latency) {
+		this.seed = seed;
+		this.latency = latency;
+		this.latencyRandom = new SplittableRandom(seed);
+		this.attractions = Collections.unmodifiableList(new ArrayList<>(new GpsUtil().getAttractions()));
+	}
+	
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		latency.pause(latencyRandom);
+		return locate(userId);
+	}
+	
+	@Override
+	public List<VisitedLocation> getUserLocations(List<UUID> userIds) {
+		latency.pause(latencyRandom);
+		List<VisitedLocation> locations = new ArrayList<>(userIds.size());
+		for(UUID userId : userIds) {
+			locations.add(locate(userId));
+		}
+		return locations;
+	}
+	
+	@Override
+	public List<Attraction> getAttractions() {
+		return attractions;
+	}
+	
+	private VisitedLocation locate(UUID userId) {
+		long userSeed = seed ^ userId.getMostSignificantBits() ^ userId.getLeastSignificantBits();
+		SplittableRandom home = new SplittableRandom(userSeed);
+		double latitude = home.nextDouble(-85.05112878, 85.05112878);
+		double longitude = home.nextDouble(-180, 180);
+		long lookup = lookups.computeIfAbsent(userId, id -> new AtomicLong()).getAndIncrement();
+		SplittableRandom trip = new SplittableRandom(userSeed ^ lookup * 0x9E3779B97F4A7C15L);
+		if(lookup > 0 && trip.nextInt(3) > 0) {
+			latitude = Math.max(-85.05112878, Math.min(85.05112878, latitude + trip.nextDouble(-0.1, 0.1)));
+			longitude = longitude + trip.nextDouble(-0.1, 0.1);
+		}
+		return new VisitedLocation(userId, new Location(latitude, longitude), new Date());
+	}
+	
+}
@@ -0,0 +1,50 @@
+package tourGuide.client.fake;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import tourGuide.client.PricingClient;
+import tripPricer.Provider;
+
+/**
+ * In-process TripPricer with configurable latency.
+ * Like TripPricer it offers five distinct providers priced on party size, stay and reward points,
+ * but the offers only depend on the seed and the request.
+ */
+public class FakePricingClient implements PricingClient {
+
+	private static final String[] PROVIDER_NAMES = { "Holiday Travels", "Enterprize Ventures Limited", "Sunny Days",
+			"FlyAway Trips", "United Partners Vacations", "Dream Trips", "Live Free",
+			"Dancing Waves Cruselines and Partners", "AdventureCo", "Cure-Your-Blues" };
+	private static final int PROVIDERS_PER_QUOTE = 5;
+	
+	private final long seed;
+	private final Latency latency;
+	private final SplittableRandom latencyRandom;
+	
+	public FakePricingClient(long seed, Latency latency) {
+		this.seed = seed;
+		this.latency = latency;
+		this.latencyRandom = new SplittableRandom(seed);
+	}
+	
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+		latency.pause(latencyRandom);
+		SplittableRandom quote = new SplittableRandom(seed ^ attractionId.getMostSignificantBits() ^ attractionId.getLeastSignificantBits()
+				^ 31L * (adults + 31L * (children + 31L * (nightsStay + 31L * rewardsPoints))));
+		int firstProvider = quote.nextInt(PROVIDER_NAMES.length);
+		List<Provider> providers = new ArrayList<>(PROVIDERS_PER_QUOTE);
+		for(int i = 0; i < PROVIDERS_PER_QUOTE; i++) {
+			int multiple = quote.nextInt(100, 700);
+			double childrenDiscount = multiple / 3;
+			double price = Math.max(0, (adults * multiple + children * childrenDiscount) * nightsStay + 0.99 - rewardsPoints);
+			String name = PROVIDER_NAMES[(firstProvider + i) % PROVIDER_NAMES.length];
+			providers.add(new Provider(new UUID(quote.nextLong(), quote.nextLong()), name, price));
+		}
+		return providers;
+	}
+	
+}
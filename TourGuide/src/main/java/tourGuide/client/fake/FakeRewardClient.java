@@ -0,0 +1,32 @@
+package tourGuide.client.fake;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import tourGuide.client.RewardClient;
+
+/**
+ * In-process RewardCentral with configurable latency.
+ * Points range from 1 to 999 like RewardCentral's, but always the same for a given seed, attraction and user.
+ */
+public class FakeRewardClient implements RewardClient {
+
+	private final long seed;
+	private final Latency latency;
+	private final SplittableRandom latencyRandom;
+	
+	public FakeRewardClient(long seed, Latency latency) {
+		this.seed = seed;
+		this.latency = latency;
+		this.latencyRandom = new SplittableRandom(seed);
+	}
+	
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		latency.pause(latencyRandom);
+		long pair = attractionId.getMostSignificantBits() ^ attractionId.getLeastSignificantBits()
+				^ 31 * (userId.getMostSignificantBits() ^ userId.getLeastSignificantBits());
+		return new SplittableRandom(seed ^ pair).nextInt(1, 1000);
+	}
+	
+}
@@ -0,0 +1,114 @@
+package tourGuide.client.fake;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+/**
+ * Distribution the simulated upstream latencies are drawn from.
+ * Written in configuration as "none", "fixed:50", "uniform:30-100" or "longtail:40,1.0,2000",
+ * durations being milliseconds.
+ */
+public abstract class Latency {
+
+	public static Latency none() {
+		return fixed(0);
+	}
+	
+	public static Latency fixed(long millis) {
+		long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+		return new Latency() {
+			@Override
+			public long sampleNanos(RandomGenerator random) {
+				return nanos;
+			}
+			
+			@Override
+			public String toString() {
+				return "fixed:" + millis;
+			}
+		};
+	}
+	
+	public static Latency uniform(long minMillis, long maxMillis) {
+		if(maxMillis < minMillis) {
+			throw new IllegalArgumentException("Uniform latency bounds are reversed: " + minMillis + "-" + maxMillis);
+		}
+		long minNanos = TimeUnit.MILLISECONDS.toNanos(minMillis);
+		long spreadNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis - minMillis);
+		return new Latency() {
+			@Override
+			public long sampleNanos(RandomGenerator random) {
+				return minNanos + (long) (random.nextDouble() * spreadNanos);
+			}
+			
+			@Override
+			public String toString() {
+				return "uniform:" + minMillis + "-" + maxMillis;
+			}
+		};
+	}
+	
+	/**
+	 * Log-normal latency: most calls take about the median, a few take many times longer.
+	 * The larger sigma, the heavier the tail; samples are capped at maxMillis.
+	 */
+	public static Latency longTail(long medianMillis, double sigma, long maxMillis) {
+		double medianNanos = TimeUnit.MILLISECONDS.toNanos(medianMillis);
+		long maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+		return new Latency() {
+			@Override
+			public long sampleNanos(RandomGenerator random) {
+				return Math.min(maxNanos, (long) (medianNanos * Math.exp(sigma * random.nextGaussian())));
+			}
+			
+			@Override
+			public String toString() {
+				return "longtail:" + medianMillis + "," + sigma + "," + maxMillis;
+			}
+		};
+	}
+	
+	public static Latency parse(String value) {
+		String[] parts = value.trim().split(":", 2);
+		try {
+			switch(parts[0].toLowerCase()) {
+			case "none":
+				return none();
+			case "fixed":
+				return fixed(Long.parseLong(parts[1].trim()));
+			case "uniform":
+				String[] bounds = parts[1].split("-");
+				return uniform(Long.parseLong(bounds[0].trim()), Long.parseLong(bounds[1].trim()));
+			case "longtail":
+				String[] shape = parts[1].split(",");
+				return longTail(Long.parseLong(shape[0].trim()), Double.parseDouble(shape[1].trim()), Long.parseLong(shape[2].trim()));
+			default:
+				throw new IllegalArgumentException("Unknown latency distribution: " + value);
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed latency: " + value, e);
+		}
+	}
+	
+	public abstract long sampleNanos(RandomGenerator random);
+	
+	/**
+	 * Blocks the calling thread for one latency sampled from a split of the caller's seeded random,
+	 * so a given seed gives the same latencies in the order the calls are made.
+	 */
+	public void pause(SplittableRandom random) {
+		SplittableRandom callRandom;
+		// SplittableRandom isn't thread-safe, only the split is made under its lock
+		synchronized(random) {
+			callRandom = random.split();
+		}
+		long deadline = System.nanoTime() + sampleNanos(callRandom);
+		// parkNanos may return early, so park again until the deadline has passed
+		for(long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+			LockSupport.parkNanos(remaining);
+		}
+	}
+	
+}
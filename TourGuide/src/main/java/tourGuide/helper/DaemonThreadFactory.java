@@ -0,0 +1,24 @@
+package tourGuide.helper;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads so worker pools never keep the JVM alive.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+	private final String namePrefix;
+	private final AtomicInteger threadNumber = new AtomicInteger(1);
+	
+	public DaemonThreadFactory(String namePrefix) {
+		this.namePrefix = namePrefix;
+	}
+	
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	}
+}
@@ -0,0 +1,31 @@
+package tourGuide.helper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How the work waiting on upstream calls is run.
+ * PLATFORM uses fixed pools of OS threads, VIRTUAL starts one virtual thread per task so that
+ * tens of thousands of blocking calls can be in flight at once; how many actually reach each
+ * upstream is then bounded by the clients' concurrency limits rather than by pool sizes.
+ */
+public enum ExecutionMode {
+	PLATFORM {
+		@Override
+		public ExecutorService newExecutor(String name, int poolSize) {
+			return Executors.newFixedThreadPool(poolSize, new DaemonThreadFactory(name));
+		}
+	},
+	VIRTUAL {
+		@Override
+		public ExecutorService newExecutor(String name, int poolSize) {
+			return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+		}
+	};
+	
+	/**
+	 * Executor whose threads are named after the given name, poolSize only applies to platform threads.
+	 */
+	public abstract ExecutorService newExecutor(String name, int poolSize);
+	
+}
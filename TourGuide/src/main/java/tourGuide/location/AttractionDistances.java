@@ -0,0 +1,182 @@
+package tourGuide.location;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import tourGuide.model.AttractionIds;
+
+/**
+ * Great-circle distances from any location to a fixed list of attractions.
+ * Each attraction's trigonometry is computed once as a unit vector, so a distance only costs a dot product
+ * and an acos, and radius checks reject far attractions with no trigonometry at all: first on latitude alone,
+ * then on the straight-line (chord) distance between unit vectors.
+ * Distances agree with RewardsService.getDistance within {@link #DISTANCE_TOLERANCE_MILES},
+ * and are 0 where the latter rounds to NaN for coincident points.
+ */
+public class AttractionDistances {
+	private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+	// same earth model as RewardsService.getDistance: 60 nautical miles per degree
+	static final double MILES_PER_DEGREE = STATUTE_MILES_PER_NAUTICAL_MILE * 60;
+	static final double MILES_PER_RADIAN = MILES_PER_DEGREE * Math.toDegrees(1);
+	// acos loses precision close to 1, which bounds how far apart two formulas can round: about 1e-4 mile
+	public static final double DISTANCE_TOLERANCE_MILES = 1e-3;
+	// absorbs rounding so that points lying exactly on a radius are decided by the exact check
+	private static final double CHORD_EPSILON = 1e-9;
+
+	private final List<Attraction> attractions;
+	private final int[] attractionIds;
+	private final double[] latitudes;
+	private final double[] x;
+	private final double[] y;
+	private final double[] z;
+
+	public AttractionDistances(List<Attraction> attractions) {
+		this.attractions = Collections.unmodifiableList(new ArrayList<>(attractions));
+		int size = attractions.size();
+		attractionIds = new int[size];
+		latitudes = new double[size];
+		x = new double[size];
+		y = new double[size];
+		z = new double[size];
+		for(int i = 0; i < size; i++) {
+			Attraction attraction = attractions.get(i);
+			double[] vector = toUnitVector(attraction);
+			attractionIds[i] = AttractionIds.of(attraction.attractionName);
+			latitudes[i] = attraction.latitude;
+			x[i] = vector[0];
+			y[i] = vector[1];
+			z[i] = vector[2];
+		}
+	}
+
+	public List<Attraction> getAttractions() {
+		return attractions;
+	}
+
+	public Attraction getAttraction(int index) {
+		return attractions.get(index);
+	}
+
+	/**
+	 * The {@link AttractionIds} id of the attraction at the given index.
+	 */
+	public int getAttractionId(int index) {
+		return attractionIds[index];
+	}
+	
+	public int size() {
+		return latitudes.length;
+	}
+
+	/**
+	 * Statute miles from the location to the attraction at the given index.
+	 */
+	public double distance(int index, Location location) {
+		double[] target = toUnitVector(location);
+		return toMiles(x[index] * target[0] + y[index] * target[1] + z[index] * target[2]);
+	}
+
+	/**
+	 * Writes the statute miles from the location to every attraction into out, in attraction order.
+	 * Nothing is allocated, so one array can be reused across calls.
+	 */
+	public void distancesFrom(Location location, double[] out) {
+		if(out.length < latitudes.length) {
+			throw new IllegalArgumentException("Output holds " + out.length + " distances, " + latitudes.length + " needed");
+		}
+		double latitude = Math.toRadians(location.latitude);
+		double longitude = Math.toRadians(location.longitude);
+		double cosLatitude = Math.cos(latitude);
+		double targetX = cosLatitude * Math.cos(longitude);
+		double targetY = cosLatitude * Math.sin(longitude);
+		double targetZ = Math.sin(latitude);
+		for(int i = 0; i < latitudes.length; i++) {
+			out[i] = toMiles(x[i] * targetX + y[i] * targetY + z[i] * targetZ);
+		}
+	}
+
+	/**
+	 * Writes the indexes of the attractions within the radius of the location into out, in attraction order,
+	 * and returns how many were written. Nothing is allocated.
+	 */
+	public int withinRadius(Location location, Radius radius, int[] out) {
+		if(out.length < latitudes.length) {
+			throw new IllegalArgumentException("Output holds " + out.length + " indexes, " + latitudes.length + " needed");
+		}
+		double latitude = Math.toRadians(location.latitude);
+		double longitude = Math.toRadians(location.longitude);
+		double cosLatitude = Math.cos(latitude);
+		double targetX = cosLatitude * Math.cos(longitude);
+		double targetY = cosLatitude * Math.sin(longitude);
+		double targetZ = Math.sin(latitude);
+		int count = 0;
+		for(int i = 0; i < latitudes.length; i++) {
+			// an arc is never shorter than its change in latitude
+			if(Math.abs(latitudes[i] - location.latitude) > radius.maxLatitudeDelta) {
+				continue;
+			}
+			double dx = x[i] - targetX;
+			double dy = y[i] - targetY;
+			double dz = z[i] - targetZ;
+			double squaredChord = dx * dx + dy * dy + dz * dz;
+			if(squaredChord <= radius.innerSquaredChord
+					|| squaredChord <= radius.outerSquaredChord && chordToMiles(squaredChord) <= radius.miles) {
+				out[count++] = i;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Proximity radius with its rejection thresholds worked out once,
+	 * so checking a location against it needs no trigonometry.
+	 */
+	public static final class Radius {
+		final double miles;
+		final double maxLatitudeDelta;
+		final double innerSquaredChord;
+		final double outerSquaredChord;
+
+		public Radius(double miles) {
+			this.miles = miles;
+			if(miles < 0) {
+				maxLatitudeDelta = -1;
+				innerSquaredChord = -1;
+				outerSquaredChord = -1;
+			} else {
+				double chord = toChord(miles);
+				maxLatitudeDelta = miles / MILES_PER_DEGREE + CHORD_EPSILON;
+				innerSquaredChord = chord > CHORD_EPSILON ? (chord - CHORD_EPSILON) * (chord - CHORD_EPSILON) : -1;
+				outerSquaredChord = (chord + CHORD_EPSILON) * (chord + CHORD_EPSILON);
+			}
+		}
+
+		public double getMiles() {
+			return miles;
+		}
+	}
+
+	static double[] toUnitVector(Location location) {
+		double latitude = Math.toRadians(location.latitude);
+		double longitude = Math.toRadians(location.longitude);
+		double cosLatitude = Math.cos(latitude);
+		return new double[] { cosLatitude * Math.cos(longitude), cosLatitude * Math.sin(longitude), Math.sin(latitude) };
+	}
+
+	static double toChord(double miles) {
+		double angle = Math.min(miles / MILES_PER_RADIAN, Math.PI);
+		return 2 * Math.sin(angle / 2);
+	}
+
+	static double chordToMiles(double squaredChord) {
+		double halfChord = Math.min(Math.sqrt(squaredChord) / 2, 1);
+		return 2 * Math.asin(halfChord) * MILES_PER_RADIAN;
+	}
+
+	private static double toMiles(double cosAngle) {
+		return Math.acos(Math.max(-1, Math.min(1, cosAngle))) * MILES_PER_RADIAN;
+	}
+}
@@ -0,0 +1,188 @@
+package tourGuide.location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Immutable k-d tree over the attractions, built on their unit vectors on the sphere.
+ * Straight-line (chord) distance between unit vectors grows with great-circle distance,
+ * so radius and nearest neighbour queries can prune whole subtrees without any trigonometry.
+ */
+public class AttractionIndex {
+	// absorbs rounding so that points lying exactly on the radius are not pruned
+	private static final double CHORD_EPSILON = 1e-9;
+
+	private final List<Attraction> attractions;
+	private final Point[] tree;
+	private final AttractionDistances distances;
+
+	public AttractionIndex(List<Attraction> attractions) {
+		this.attractions = Collections.unmodifiableList(new ArrayList<>(attractions));
+		this.tree = new Point[attractions.size()];
+		for(int i = 0; i < tree.length; i++) {
+			tree[i] = new Point(attractions.get(i));
+		}
+		build(0, tree.length, 0);
+		this.distances = new AttractionDistances(this.attractions);
+	}
+
+	public List<Attraction> getAttractions() {
+		return attractions;
+	}
+
+	/**
+	 * Distance kernel over the same attractions, in the same order as {@link #getAttractions()}.
+	 */
+	public AttractionDistances getDistances() {
+		return distances;
+	}
+
+	public int size() {
+		return tree.length;
+	}
+
+	/**
+	 * Tells whether the given attractions are the ones this index was built from,
+	 * comparing names and coordinates since gpsUtil hands out fresh ids on every call.
+	 */
+	public boolean hasSameAttractions(List<Attraction> others) {
+		if(others.size() != attractions.size()) {
+			return false;
+		}
+		for(int i = 0; i < others.size(); i++) {
+			Attraction attraction = attractions.get(i);
+			Attraction other = others.get(i);
+			if(!attraction.attractionName.equals(other.attractionName)
+					|| attraction.latitude != other.latitude
+					|| attraction.longitude != other.longitude) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Attractions at most the given number of statute miles away from the location, in no particular order.
+	 */
+	public List<Attraction> withinRadius(Location location, double miles) {
+		List<Attraction> result = new ArrayList<>();
+		if(miles < 0) {
+			return result;
+		}
+		double[] target = AttractionDistances.toUnitVector(location);
+		double maxChord = AttractionDistances.toChord(miles) + CHORD_EPSILON;
+		collectWithin(0, tree.length, 0, target, maxChord * maxChord, miles, result);
+		return result;
+	}
+
+	/**
+	 * The k attractions closest to the location, nearest first.
+	 */
+	public List<Attraction> nearest(Location location, int k) {
+		if(k <= 0 || tree.length == 0) {
+			return new ArrayList<>();
+		}
+		double[] target = AttractionDistances.toUnitVector(location);
+		// bounded max-heap: the head is the farthest of the best k found so far
+		PriorityQueue<Neighbour> best = new PriorityQueue<>(k, Comparator.comparingDouble((Neighbour n) -> n.squaredChord).reversed());
+		collectNearest(0, tree.length, 0, target, k, best);
+
+		Neighbour[] sorted = best.toArray(new Neighbour[0]);
+		Arrays.sort(sorted, Comparator.comparingDouble(n -> n.squaredChord));
+		List<Attraction> result = new ArrayList<>(sorted.length);
+		for(Neighbour neighbour : sorted) {
+			result.add(neighbour.point.attraction);
+		}
+		return result;
+	}
+
+	private void build(int from, int to, int depth) {
+		if(to - from <= 1) {
+			return;
+		}
+		int axis = depth % 3;
+		Arrays.sort(tree, from, to, Comparator.comparingDouble(p -> p.coordinates[axis]));
+		int median = (from + to) >>> 1;
+		build(from, median, depth + 1);
+		build(median + 1, to, depth + 1);
+	}
+
+	private void collectWithin(int from, int to, int depth, double[] target, double maxSquaredChord, double miles, List<Attraction> result) {
+		if(from >= to) {
+			return;
+		}
+		int median = (from + to) >>> 1;
+		Point point = tree[median];
+		double squaredChord = squaredChord(point.coordinates, target);
+		if(squaredChord <= maxSquaredChord && AttractionDistances.chordToMiles(squaredChord) <= miles) {
+			result.add(point.attraction);
+		}
+
+		double delta = target[depth % 3] - point.coordinates[depth % 3];
+		if(delta <= 0 || delta * delta <= maxSquaredChord) {
+			collectWithin(from, median, depth + 1, target, maxSquaredChord, miles, result);
+		}
+		if(delta >= 0 || delta * delta <= maxSquaredChord) {
+			collectWithin(median + 1, to, depth + 1, target, maxSquaredChord, miles, result);
+		}
+	}
+
+	private void collectNearest(int from, int to, int depth, double[] target, int k, PriorityQueue<Neighbour> best) {
+		if(from >= to) {
+			return;
+		}
+		int median = (from + to) >>> 1;
+		Point point = tree[median];
+		double squaredChord = squaredChord(point.coordinates, target);
+		if(best.size() < k) {
+			best.add(new Neighbour(point, squaredChord));
+		} else if(squaredChord < best.peek().squaredChord) {
+			best.poll();
+			best.add(new Neighbour(point, squaredChord));
+		}
+
+		double delta = target[depth % 3] - point.coordinates[depth % 3];
+		int nearFrom = delta <= 0 ? from : median + 1;
+		int nearTo = delta <= 0 ? median : to;
+		int farFrom = delta <= 0 ? median + 1 : from;
+		int farTo = delta <= 0 ? to : median;
+		collectNearest(nearFrom, nearTo, depth + 1, target, k, best);
+		if(best.size() < k || delta * delta < best.peek().squaredChord) {
+			collectNearest(farFrom, farTo, depth + 1, target, k, best);
+		}
+	}
+
+	private static double squaredChord(double[] a, double[] b) {
+		double dx = a[0] - b[0];
+		double dy = a[1] - b[1];
+		double dz = a[2] - b[2];
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private static final class Point {
+		final Attraction attraction;
+		final double[] coordinates;
+
+		Point(Attraction attraction) {
+			this.attraction = attraction;
+			this.coordinates = AttractionDistances.toUnitVector(attraction);
+		}
+	}
+
+	private static final class Neighbour {
+		final Point point;
+		final double squaredChord;
+
+		Neighbour(Point point, double squaredChord) {
+			this.point = point;
+			this.squaredChord = squaredChord;
+		}
+	}
+}
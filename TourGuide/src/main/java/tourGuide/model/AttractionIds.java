@@ -0,0 +1,32 @@
+package tourGuide.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dense integer id of every attraction, 0, 1, 2... in the order they are first seen, so a set of attractions
+ * fits in a bitset. Attractions are told apart by name, as rewards do, and keep their id for the life of
+ * the process whatever the gpsUtil list they come from.
+ */
+public final class AttractionIds {
+
+	private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+	private static final AtomicInteger nextId = new AtomicInteger();
+	
+	private AttractionIds() {
+	}
+	
+	public static int of(String attractionName) {
+		Integer id = ids.get(attractionName);
+		return id != null ? id : ids.computeIfAbsent(attractionName, name -> nextId.getAndIncrement());
+	}
+	
+	/**
+	 * Number of ids given so far, each id is below it.
+	 */
+	public static int count() {
+		return nextId.get();
+	}
+	
+}
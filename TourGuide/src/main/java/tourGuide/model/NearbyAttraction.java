@@ -0,0 +1,26 @@
+package tourGuide.model;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+public class NearbyAttraction {
+
+	public final String attractionName;
+	public final double attractionLatitude;
+	public final double attractionLongitude;
+	public final double userLatitude;
+	public final double userLongitude;
+	public final double distance;
+	// null when RewardCentral did not answer within the lookup budget
+	public final Integer rewardPoints;
+	public NearbyAttraction(Attraction attraction, Location userLocation, double distance, Integer rewardPoints) {
+		this.attractionName = attraction.attractionName;
+		this.attractionLatitude = attraction.latitude;
+		this.attractionLongitude = attraction.longitude;
+		this.userLatitude = userLocation.latitude;
+		this.userLongitude = userLocation.longitude;
+		this.distance = distance;
+		this.rewardPoints = rewardPoints;
+	}
+	
+}
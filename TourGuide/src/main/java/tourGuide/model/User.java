@@ -1,28 +1,49 @@
 package tourGuide.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 import tripPricer.Provider;
 
 public class User {
+	// 5 minute tracking keeps a bit more than three days of history
+	public static final int DEFAULT_HISTORY_CAPACITY = 1000;
+	private static final long[] NO_ATTRACTIONS = new long[0];
 	private final UUID userId;
 	private final String userName;
 	private String phoneNumber;
 	private String emailAddress;
 	private Date latestLocationTimestamp;
-	private List<VisitedLocation> visitedLocations = new ArrayList<>();
-	private List<UserReward> userRewards = new ArrayList<>();
-	private UserPreferences userPreferences = new UserPreferences();
-	private List<Provider> tripDeals = new ArrayList<>();
+	private final VisitedLocationHistory visitedLocations;
+	// rewards are rarely added but read on every reward calculation
+	private final List<UserReward> userRewards = new CopyOnWriteArrayList<>();
+	// bitset of the rewarded attractions' ids, copied on write like the rewards so it's read without locking
+	private volatile long[] rewardedAttractions = NO_ATTRACTIONS;
+	// running total of the rewards' points, kept as rewards are added
+	private final AtomicInteger cumulativeRewardPoints = new AtomicInteger();
+	// position in the visited location history up to which rewards have been evaluated
+	private final AtomicLong rewardsWatermark = new AtomicLong();
+	private volatile UserPreferences userPreferences = new UserPreferences();
+	private volatile List<Provider> tripDeals = new ArrayList<>();
+	private volatile UserListener listener;
 	public User(UUID userId, String userName, String phoneNumber, String emailAddress) {
+		this(userId, userName, phoneNumber, emailAddress, DEFAULT_HISTORY_CAPACITY);
+	}
+	
+	public User(UUID userId, String userName, String phoneNumber, String emailAddress, int historyCapacity) {
 		this.userId = userId;
 		this.userName = userName;
 		this.phoneNumber = phoneNumber;
 		this.emailAddress = emailAddress;
+		this.visitedLocations = new VisitedLocationHistory(userId, historyCapacity);
 	}
 	
 	public UUID getUserId() {
@@ -58,10 +79,24 @@ public class User {
 	}
 	
 	public void addToVisitedLocations(VisitedLocation visitedLocation) {
-		visitedLocations.add(visitedLocation);
+		// the listener is told under the history's lock, so it sees the user's locations in position order
+		synchronized(visitedLocations) {
+			long position = visitedLocations.add(visitedLocation);
+			UserListener listener = this.listener;
+			if(listener != null) {
+				listener.visitedLocationAdded(this, visitedLocation, position);
+			}
+		}
 	}
 	
+	/**
+	 * Snapshot of the retained visited locations, oldest first.
+	 */
 	public List<VisitedLocation> getVisitedLocations() {
+		return visitedLocations.snapshot();
+	}
+	
+	public VisitedLocationHistory getVisitedLocationHistory() {
 		return visitedLocations;
 	}
 	
@@ -69,10 +104,55 @@ public class User {
 		visitedLocations.clear();
 	}
 	
-	public void addUserReward(UserReward userReward) {
-		if(userRewards.stream().filter(r -> !r.attraction.attractionName.equals(userReward.attraction)).count() == 0) {
-			userRewards.add(userReward);
+	/**
+	 * Adds the reward unless the user was already rewarded for its attraction.
+	 * @return whether the reward was added
+	 */
+	public synchronized boolean addUserReward(UserReward userReward) {
+		int attractionId = AttractionIds.of(userReward.attraction.attractionName);
+		if(hasUserReward(attractionId)) {
+			return false;
 		}
+		long[] rewarded = rewardedAttractions;
+		int word = attractionId >>> 6;
+		long[] updated = Arrays.copyOf(rewarded, Math.max(rewarded.length, word + 1));
+		updated[word] |= 1L << attractionId;
+		userRewards.add(userReward);
+		rewardedAttractions = updated;
+		cumulativeRewardPoints.addAndGet(userReward.getRewardPoints());
+		UserListener listener = this.listener;
+		if(listener != null) {
+			listener.userRewardAdded(this, userReward);
+		}
+		return true;
+	}
+	
+	/**
+	 * Whether the user was rewarded for the attraction of the given {@link AttractionIds} id.
+	 */
+	public boolean hasUserReward(int attractionId) {
+		long[] rewarded = rewardedAttractions;
+		int word = attractionId >>> 6;
+		return word < rewarded.length && (rewarded[word] & 1L << attractionId) != 0;
+	}
+	
+	public boolean hasUserReward(Attraction attraction) {
+		return hasUserReward(AttractionIds.of(attraction.attractionName));
+	}
+	
+	public int getCumulativeRewardPoints() {
+		return cumulativeRewardPoints.get();
+	}
+	
+	public long getRewardsWatermark() {
+		return rewardsWatermark.get();
+	}
+	
+	/**
+	 * Moves the watermark forward, never back, so concurrent evaluations can finish in any order.
+	 */
+	public void advanceRewardsWatermark(long position) {
+		rewardsWatermark.accumulateAndGet(position, Math::max);
 	}
 	
 	public List<UserReward> getUserRewards() {
@@ -87,8 +167,18 @@ public class User {
 		this.userPreferences = userPreferences;
 	}
 
+	/**
+	 * The most recent visited location, or null if the user was never located.
+	 */
 	public VisitedLocation getLastVisitedLocation() {
-		return visitedLocations.get(visitedLocations.size() - 1);
+		return visitedLocations.getLast();
+	}
+	
+	/**
+	 * Listener told about the locations and rewards added from now on, null for none.
+	 */
+	public void setListener(UserListener listener) {
+		this.listener = listener;
 	}
 	
 	public void setTripDeals(List<Provider> tripDeals) {
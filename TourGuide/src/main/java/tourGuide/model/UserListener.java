@@ -0,0 +1,19 @@
+package tourGuide.model;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Told about every change to a user's history and rewards, on the thread making the change.
+ * Implementations must return quickly, tracking and reward calculation wait for them.
+ */
+public interface UserListener {
+
+	/**
+	 * Called under the user's history lock, so a user's locations are reported in position order.
+	 * @param position position of the location in the user's append sequence, see {@link VisitedLocationHistory#since(long)}
+	 */
+	void visitedLocationAdded(User user, VisitedLocation visitedLocation, long position);
+
+	void userRewardAdded(User user, UserReward userReward);
+
+}
@@ -0,0 +1,203 @@
+package tourGuide.model;
+
+import java.util.AbstractList;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Append-only ring buffer of a user's visited locations.
+ * The buffer grows on demand up to its capacity, then each new location overwrites the oldest one
+ * so memory per user stays flat.
+ * Locations are stored in columns of primitives rather than as VisitedLocation objects: coordinates as
+ * integers of 1e-7 degree (about a centimetre) and times as seconds from the first location, 12 bytes per location
+ * against about 84 for a VisitedLocation with its Location and Date. Reads hand out lightweight list views
+ * that build VisitedLocation objects on access.
+ * Appends and snapshots are synchronized on the history, the last location is published through a volatile
+ * field so reading it never blocks nor races with the tracker.
+ */
+public class VisitedLocationHistory {
+
+	private static final int INITIAL_LENGTH = 8;
+	private static final double UNITS_PER_DEGREE = 1e7;
+
+	private final UUID userId;
+	private final int capacity;
+	private int[] latitudes;
+	private int[] longitudes;
+	private int[] seconds;
+	private long epochSecond;
+	private int head;
+	private int size;
+	private long appendedCount;
+	private volatile VisitedLocation last;
+
+	public VisitedLocationHistory(UUID userId, int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+		}
+		this.userId = userId;
+		this.capacity = capacity;
+		allocate(Math.min(capacity, INITIAL_LENGTH));
+	}
+
+	/**
+	 * @return the position of the location in the append sequence
+	 */
+	public synchronized long add(VisitedLocation visitedLocation) {
+		if(size == latitudes.length && size < capacity) {
+			grow();
+		}
+		long epochSecondVisited = Math.floorDiv(visitedLocation.timeVisited.getTime(), 1000);
+		// times are kept relative to the oldest location held, whatever its position
+		if(size == 0) {
+			epochSecond = epochSecondVisited;
+		}
+		int index = (head + size) % latitudes.length;
+		latitudes[index] = (int) Math.round(visitedLocation.location.latitude * UNITS_PER_DEGREE);
+		longitudes[index] = (int) Math.round(visitedLocation.location.longitude * UNITS_PER_DEGREE);
+		seconds[index] = Math.toIntExact(epochSecondVisited - epochSecond);
+		if(size < latitudes.length) {
+			size++;
+		} else {
+			head = (head + 1) % latitudes.length;
+		}
+		last = visitedLocation;
+		return appendedCount++;
+	}
+
+	/**
+	 * Adds a location read back from storage at its original position, unless the history already holds that position.
+	 * Positions skipped over are counted as appended, so they're never evaluated for rewards.
+	 * Locations must be restored in position order, as they are written: a user's locations are handed to its
+	 * listener under the history's lock, so they reach the log in the order they were added.
+	 */
+	public synchronized void restore(VisitedLocation visitedLocation, long position) {
+		if(position < appendedCount) {
+			return;
+		}
+		appendedCount = position;
+		add(visitedLocation);
+	}
+
+	/**
+	 * The most recently added location, or null if none was ever added.
+	 */
+	public VisitedLocation getLast() {
+		return last;
+	}
+
+	/**
+	 * Copy of the retained locations, oldest first.
+	 */
+	public synchronized List<VisitedLocation> snapshot() {
+		return copy(0);
+	}
+
+	/**
+	 * Copy of the retained locations whose position in the append sequence is at least the given one,
+	 * oldest first. Positions start at 0 for the first location ever added.
+	 */
+	public synchronized List<VisitedLocation> since(long position) {
+		long firstRetained = appendedCount - size;
+		return copy((int) Math.max(0, Math.min(size, position - firstRetained)));
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Number of locations ever added, including the ones the buffer has since dropped.
+	 */
+	public synchronized long getAppendedCount() {
+		return appendedCount;
+	}
+
+	public synchronized void clear() {
+		allocate(Math.min(capacity, INITIAL_LENGTH));
+		head = 0;
+		// positions keep growing so the locations added after a clear are still seen as new
+		size = 0;
+		last = null;
+	}
+
+	private List<VisitedLocation> copy(int skipped) {
+		int length = size - skipped;
+		int[] copiedLatitudes = new int[length];
+		int[] copiedLongitudes = new int[length];
+		int[] copiedSeconds = new int[length];
+		for(int i = 0; i < length; i++) {
+			int index = (head + skipped + i) % latitudes.length;
+			copiedLatitudes[i] = latitudes[index];
+			copiedLongitudes[i] = longitudes[index];
+			copiedSeconds[i] = seconds[index];
+		}
+		return new View(userId, copiedLatitudes, copiedLongitudes, copiedSeconds, epochSecond, length > 0 ? last : null);
+	}
+
+	private void allocate(int length) {
+		latitudes = new int[length];
+		longitudes = new int[length];
+		seconds = new int[length];
+	}
+
+	private void grow() {
+		int[] oldLatitudes = latitudes;
+		int[] oldLongitudes = longitudes;
+		int[] oldSeconds = seconds;
+		allocate((int) Math.min(capacity, 2L * oldLatitudes.length));
+		for(int i = 0; i < size; i++) {
+			int index = (head + i) % oldLatitudes.length;
+			latitudes[i] = oldLatitudes[index];
+			longitudes[i] = oldLongitudes[index];
+			seconds[i] = oldSeconds[index];
+		}
+		head = 0;
+	}
+
+	/**
+	 * Read-only list over copied columns, each element is built when accessed.
+	 * The newest element is the VisitedLocation that was added, so reading just the latest location allocates nothing.
+	 */
+	private static final class View extends AbstractList<VisitedLocation> implements RandomAccess {
+		private final UUID userId;
+		private final int[] latitudes;
+		private final int[] longitudes;
+		private final int[] seconds;
+		private final long epochSecond;
+		private final VisitedLocation newest;
+
+		View(UUID userId, int[] latitudes, int[] longitudes, int[] seconds, long epochSecond, VisitedLocation newest) {
+			this.userId = userId;
+			this.latitudes = latitudes;
+			this.longitudes = longitudes;
+			this.seconds = seconds;
+			this.epochSecond = epochSecond;
+			this.newest = newest;
+		}
+
+		@Override
+		public VisitedLocation get(int index) {
+			if(index == latitudes.length - 1 && newest != null) {
+				return newest;
+			}
+			Location location = new Location(latitudes[index] / UNITS_PER_DEGREE, longitudes[index] / UNITS_PER_DEGREE);
+			return new VisitedLocation(userId, location, new Date((epochSecond + seconds[index]) * 1000));
+		}
+
+		@Override
+		public int size() {
+			return latitudes.length;
+		}
+	}
+
+}
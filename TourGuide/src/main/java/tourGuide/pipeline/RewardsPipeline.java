@@ -0,0 +1,326 @@
+package tourGuide.pipeline;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import gpsUtil.location.VisitedLocation;
+import tourGuide.helper.ExecutionMode;
+import tourGuide.model.User;
+import tourGuide.service.RewardsService;
+
+/**
+ * Calculates rewards for tracked locations apart from tracking, so tracking runs at gpsUtil's pace
+ * whatever RewardCentral's.
+ * Tracked locations are published to a ring buffer; each worker takes a batch of them, calculates the rewards
+ * of every user in the batch once on the rewards pool, and waits for the batch before taking the next one,
+ * so no more than workers * batchSize calculations are in progress.
+ * A user is calculated for by one worker at a time: the locations another worker takes for it meanwhile are
+ * handed over to the calculating worker, which calculates again once done instead of both calling RewardCentral.
+ * When the ring is full publishers wait, parking longer and longer, which slows tracking down to the pace
+ * rewards are calculated at. A location that is never calculated for loses nothing: the next calculation of
+ * the user evaluates every location since the rewards watermark.
+ * Closing stops accepting locations, then waits for the workers to calculate the ones already published.
+ */
+@Service
+public class RewardsPipeline implements AutoCloseable {
+	private Logger logger = LoggerFactory.getLogger(RewardsPipeline.class);
+
+	private static final int DEFAULT_CAPACITY = 1 << 16;
+	private static final int DEFAULT_WORKER_COUNT = 4;
+	private static final int DEFAULT_BATCH_SIZE = 256;
+	private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	// an idle worker checks the ring at least this often, a delay rewards can afford
+	private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long DRAIN_TIMEOUT_SECONDS = 30;
+
+	private final RewardsService rewardsService;
+	private final RingBuffer<LocationEvent> ringBuffer;
+	private final int batchSize;
+	private final ExecutorService workers;
+	// published and not calculated yet, queued or in a batch
+	private final AtomicLong pendingEvents = new AtomicLong();
+	private final LongAdder publishedEvents = new LongAdder();
+	private final LongAdder processedEvents = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder coalescedEvents = new LongAdder();
+	// users being calculated for, by the worker which claimed them (User doesn't override equals)
+	private final Map<User, Claim> claims = new ConcurrentHashMap<>();
+	private final LongAdder droppedEvents = new LongAdder();
+	private final LongAdder backpressureWaits = new LongAdder();
+	private final LongAdder backpressureTime = new LongAdder();
+	private volatile boolean closed;
+
+	public RewardsPipeline(RewardsService rewardsService) {
+		this(rewardsService, ExecutionMode.PLATFORM);
+	}
+
+	public RewardsPipeline(RewardsService rewardsService, ExecutionMode executionMode) {
+		this(rewardsService, DEFAULT_CAPACITY, DEFAULT_WORKER_COUNT, DEFAULT_BATCH_SIZE, executionMode);
+	}
+
+	@Autowired
+	public RewardsPipeline(RewardsService rewardsService,
+			@Value("${tourGuide.rewards.pipeline.capacity}") int capacity,
+			@Value("${tourGuide.rewards.pipeline.workers}") int workerCount,
+			@Value("${tourGuide.rewards.pipeline.batchSize}") int batchSize,
+			@Value("${tourGuide.execution.mode}") ExecutionMode executionMode) {
+		this.rewardsService = rewardsService;
+		this.ringBuffer = new RingBuffer<>(capacity);
+		this.batchSize = batchSize;
+		this.workers = executionMode.newExecutor("rewards-pipeline", workerCount);
+		for(int i = 0; i < workerCount; i++) {
+			workers.execute(this::work);
+		}
+	}
+
+	/**
+	 * Queues the rewards calculation of the user's new location, waiting while the ring is full.
+	 * Once the pipeline is closed the location is dropped, and left to the user's next calculation.
+	 */
+	public void publish(User user, VisitedLocation visitedLocation) {
+		if(closed) {
+			droppedEvents.increment();
+			return;
+		}
+		LocationEvent event = new LocationEvent(user, visitedLocation);
+		pendingEvents.incrementAndGet();
+		if(!ringBuffer.offer(event)) {
+			backpressureWaits.increment();
+			long start = System.nanoTime();
+			long parkNanos = MIN_PARK_NANOS;
+			while(!ringBuffer.offer(event)) {
+				if(closed || Thread.currentThread().isInterrupted()) {
+					pendingEvents.decrementAndGet();
+					droppedEvents.increment();
+					return;
+				}
+				LockSupport.parkNanos(parkNanos);
+				parkNanos = Math.min(2 * parkNanos, MAX_PARK_NANOS);
+			}
+			backpressureTime.add(System.nanoTime() - start);
+		}
+		publishedEvents.increment();
+	}
+
+	/**
+	 * Waits until every location published so far, and since, has been calculated for.
+	 * @return false if the timeout elapsed first
+	 */
+	public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(pendingEvents.get() > 0) {
+			if(System.nanoTime() >= deadline) {
+				return false;
+			}
+			TimeUnit.MILLISECONDS.sleep(1);
+		}
+		return true;
+	}
+
+	/**
+	 * Locations published and not calculated for yet.
+	 */
+	public long getPendingEventCount() {
+		return pendingEvents.get();
+	}
+
+	/**
+	 * Locations waiting in the ring for a worker.
+	 */
+	public int getQueuedEventCount() {
+		return ringBuffer.size();
+	}
+
+	public int getCapacity() {
+		return ringBuffer.capacity();
+	}
+
+	public long getPublishedEventCount() {
+		return publishedEvents.sum();
+	}
+
+	public long getProcessedEventCount() {
+		return processedEvents.sum();
+	}
+
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+	/**
+	 * Locations handed over to the worker already calculating for their user.
+	 */
+	public long getCoalescedEventCount() {
+		return coalescedEvents.sum();
+	}
+
+	/**
+	 * Locations dropped because the pipeline was closed.
+	 */
+	public long getDroppedEventCount() {
+		return droppedEvents.sum();
+	}
+
+	/**
+	 * Publications that found the ring full and had to wait.
+	 */
+	public long getBackpressureWaitCount() {
+		return backpressureWaits.sum();
+	}
+
+	public long getBackpressureWaitNanos() {
+		return backpressureTime.sum();
+	}
+
+	/**
+	 * Stops accepting locations and waits for the ones already published to be calculated for.
+	 */
+	@Override
+	public void close() {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		workers.shutdown();
+		try {
+			if(!workers.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				logger.warn("Rewards pipeline not drained after " + DRAIN_TIMEOUT_SECONDS + " seconds, "
+						+ pendingEvents.get() + " locations left");
+				workers.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void work() {
+		List<LocationEvent> batch = new ArrayList<>(batchSize);
+		// the batch's users, with their number of locations in it
+		Map<User, Integer> users = new IdentityHashMap<>();
+		List<User> claimedUsers = new ArrayList<>();
+		long parkNanos = MIN_PARK_NANOS;
+		while(!Thread.currentThread().isInterrupted()) {
+			int count = ringBuffer.drainTo(batch, batchSize);
+			if(count == 0) {
+				if(closed) {
+					return;
+				}
+				LockSupport.parkNanos(parkNanos);
+				parkNanos = Math.min(2 * parkNanos, MAX_IDLE_PARK_NANOS);
+				continue;
+			}
+			parkNanos = MIN_PARK_NANOS;
+			// a user's calculation covers all of its new locations, so it's done once per batch
+			for(LocationEvent event : batch) {
+				users.merge(event.user, 1, Integer::sum);
+			}
+			// locations of the users being calculated for by another worker are left to it
+			long handledEvents = 0;
+			for(Map.Entry<User, Integer> entry : users.entrySet()) {
+				if(claim(entry.getKey(), entry.getValue())) {
+					claimedUsers.add(entry.getKey());
+					handledEvents += entry.getValue();
+				}
+			}
+			try {
+				while(!claimedUsers.isEmpty()) {
+					CompletableFuture<?>[] calculations = claimedUsers.stream()
+							.map(rewardsService::calculateRewardsAsync)
+							.toArray(CompletableFuture[]::new);
+					try {
+						CompletableFuture.allOf(calculations).join();
+					} catch (CompletionException e) {
+						logger.debug("Rewards calculation failed: " + e.getCause());
+					}
+					// users handed locations during their calculation, which may have missed them, are calculated again
+					for(Iterator<User> i = claimedUsers.iterator(); i.hasNext(); ) {
+						int handedOver = release(i.next());
+						if(handedOver == 0) {
+							i.remove();
+						}
+						handledEvents += handedOver;
+					}
+				}
+			} finally {
+				for(User user : claimedUsers) {
+					handledEvents += claims.remove(user).handedOverEvents;
+				}
+				processedEvents.add(handledEvents);
+				pendingEvents.addAndGet(-handledEvents);
+				batches.increment();
+				batch.clear();
+				users.clear();
+				claimedUsers.clear();
+			}
+		}
+	}
+
+	/**
+	 * Claims the user's calculation, or hands its locations over to the worker which already did.
+	 * @return true if claimed
+	 */
+	private boolean claim(User user, int events) {
+		Claim mine = new Claim();
+		Claim claim = claims.compute(user, (u, current) -> {
+			if(current == null) {
+				return mine;
+			}
+			current.handedOverEvents += events;
+			return current;
+		});
+		if(claim != mine) {
+			coalescedEvents.add(events);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Releases the user's calculation, unless locations were handed over meanwhile.
+	 * @return the number of locations handed over, 0 if released
+	 */
+	private int release(User user) {
+		int[] handedOver = new int[1];
+		claims.computeIfPresent(user, (u, claim) -> {
+			handedOver[0] = claim.handedOverEvents;
+			claim.handedOverEvents = 0;
+			return handedOver[0] == 0 ? null : claim;
+		});
+		return handedOver[0];
+	}
+
+	// guarded by the claims map
+	private static final class Claim {
+		int handedOverEvents;
+	}
+
+	private static final class LocationEvent {
+		final User user;
+		final VisitedLocation visitedLocation;
+
+		LocationEvent(User user, VisitedLocation visitedLocation) {
+			this.user = user;
+			this.visitedLocation = visitedLocation;
+		}
+	}
+
+}
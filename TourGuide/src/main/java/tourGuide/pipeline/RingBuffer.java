@@ -0,0 +1,119 @@
+package tourGuide.pipeline;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue over a preallocated ring of slots, for any number of producers and consumers.
+ * Each slot carries a sequence number telling whether it is free for the producer at a given position
+ * or filled for the consumer at that position, so producers and consumers only contend on their own
+ * position counter and never on each other (Vyukov's bounded MPMC queue, as in the Disruptor).
+ * Offering to a full ring fails rather than waits, the caller decides how to apply backpressure.
+ */
+public class RingBuffer<E> {
+
+	private final int mask;
+	private final Object[] elements;
+	private final AtomicLongArray sequences;
+	// next position to fill, and next position to take
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * @param capacity rounded up to a power of two
+	 */
+	public RingBuffer(int capacity) {
+		if(capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Ring buffer capacity out of range: " + capacity);
+		}
+		int length = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		mask = length - 1;
+		elements = new Object[length];
+		sequences = new AtomicLongArray(length);
+		for(int i = 0; i < length; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Adds the element unless the ring is full.
+	 * @return whether the element was added
+	 */
+	public boolean offer(E element) {
+		if(element == null) {
+			throw new NullPointerException();
+		}
+		long position = tail.get();
+		while(true) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if(difference == 0) {
+				if(tail.compareAndSet(position, position + 1)) {
+					elements[index] = element;
+					// publishes the element to the consumer of this position
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if(difference < 0) {
+				// the slot still holds the element of the previous lap
+				return false;
+			} else {
+				// another producer took this position
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Takes the oldest element, or returns null if the ring is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long position = head.get();
+		while(true) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - (position + 1);
+			if(difference == 0) {
+				if(head.compareAndSet(position, position + 1)) {
+					E element = (E) elements[index];
+					elements[index] = null;
+					// frees the slot for the producer of the next lap
+					sequences.set(index, position + mask + 1);
+					return element;
+				}
+				position = head.get();
+			} else if(difference < 0) {
+				return null;
+			} else {
+				position = head.get();
+			}
+		}
+	}
+
+	/**
+	 * Moves up to maxElements of the oldest elements to the collection.
+	 * @return the number of elements moved
+	 */
+	public int drainTo(Collection<? super E> collection, int maxElements) {
+		int count = 0;
+		for(E element; count < maxElements && (element = poll()) != null; count++) {
+			collection.add(element);
+		}
+		return count;
+	}
+
+	/**
+	 * Number of elements in the ring, exact only when no element is being added or taken.
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, elements.length));
+	}
+
+	public int capacity() {
+		return elements.length;
+	}
+
+}
@@ -0,0 +1,54 @@
+package tourGuide.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import tourGuide.model.User;
+
+/**
+ * Keeps users in memory, keyed by user name.
+ * ConcurrentHashMap locks per hash bin, so the tracker and request threads
+ * only contend when they touch the very same bin.
+ */
+@Repository
+@ConditionalOnProperty(name = "tourGuide.store.enabled", havingValue = "false", matchIfMissing = true)
+public class InMemoryUserRepository implements UserRepository {
+
+	private static final int EXPECTED_USERS = 100_000;
+	
+	private final ConcurrentMap<String, User> users;
+	
+	public InMemoryUserRepository() {
+		this(EXPECTED_USERS);
+	}
+	
+	public InMemoryUserRepository(int expectedUsers) {
+		this.users = new ConcurrentHashMap<>(expectedUsers);
+	}
+	
+	@Override
+	public User findByUserName(String userName) {
+		return users.get(userName);
+	}
+	
+	@Override
+	public User putIfAbsent(User user) {
+		return users.putIfAbsent(user.getUserName(), user);
+	}
+	
+	@Override
+	public Collection<User> findAll() {
+		return Collections.unmodifiableCollection(users.values());
+	}
+	
+	@Override
+	public int count() {
+		return users.size();
+	}
+	
+}
@@ -0,0 +1,450 @@
+package tourGuide.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import gpsUtil.location.VisitedLocation;
+import tourGuide.helper.DaemonThreadFactory;
+import tourGuide.model.User;
+import tourGuide.model.UserListener;
+import tourGuide.model.UserReward;
+import tourGuide.model.VisitedLocationHistory;
+
+/**
+ * Keeps users in memory like {@link InMemoryUserRepository}, and on disk so they survive a restart.
+ * Every user added and every location and reward added to a user is appended to a log; the log is
+ * periodically replaced by a snapshot of all users, split into segments that are memory-mapped and read
+ * in parallel on recovery.
+ * Changes are queued and written by a single store thread, which syncs the log once per flush interval,
+ * so tracking never waits for the disk. If the queue fills up the changes are dropped and only the next
+ * snapshot saves them.
+ * The directory holds log-N.bin files and snapshot-N directories: snapshot N and the logs numbered N or more
+ * hold every user. Replaying a change the snapshot already holds is harmless, locations are restored at their
+ * position in the user's history and rewards are granted once per attraction.
+ */
+@Repository
+@ConditionalOnProperty(name = "tourGuide.store.enabled", havingValue = "true")
+public class PersistentUserRepository implements UserRepository, UserListener, AutoCloseable {
+	private Logger logger = LoggerFactory.getLogger(PersistentUserRepository.class);
+
+	private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+	private static final long DEFAULT_SNAPSHOT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	private static final int QUEUE_CAPACITY = 1_000_000;
+	// a longer log is replaced by a snapshot ahead of time, it would take long to replay
+	private static final long MAX_LOG_BYTES = 256L << 20;
+	// a mapped buffer can't reach 2 GB, segments stay well below so several load in parallel
+	private static final long SEGMENT_BYTES = 256L << 20;
+	private static final Pattern LOG_NAME = Pattern.compile("log-(\\d+)\\.bin");
+	private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)");
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final InMemoryUserRepository users = new InMemoryUserRepository();
+	private final Path directory;
+	private final BlockingQueue<PendingRecord> pendingRecords = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+	private final ScheduledExecutorService storeExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("user-store"));
+	private final LongAdder writtenRecords = new LongAdder();
+	private final LongAdder droppedRecords = new LongAdder();
+	private final LongAdder snapshots = new LongAdder();
+	// only touched by the store thread once recovered
+	private long generation;
+	private RecordWriter log;
+	private volatile boolean closed;
+
+	public PersistentUserRepository(Path directory) throws IOException {
+		this(directory, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_SNAPSHOT_INTERVAL_MILLIS);
+	}
+
+	@Autowired
+	public PersistentUserRepository(@Value("${tourGuide.store.directory}") String directory,
+			@Value("${tourGuide.store.flushIntervalMillis}") long flushIntervalMillis,
+			@Value("${tourGuide.store.snapshotIntervalMinutes}") long snapshotIntervalMinutes) throws IOException {
+		this(Paths.get(directory), flushIntervalMillis, TimeUnit.MINUTES.toMillis(snapshotIntervalMinutes));
+	}
+
+	public PersistentUserRepository(Path directory, long flushIntervalMillis, long snapshotIntervalMillis) throws IOException {
+		this.directory = directory;
+		Files.createDirectories(directory);
+		recover();
+		log = new RecordWriter(logPath(generation));
+		storeExecutor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+		storeExecutor.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public User findByUserName(String userName) {
+		return users.findByUserName(userName);
+	}
+
+	@Override
+	public User putIfAbsent(User user) {
+		User existing = users.putIfAbsent(user);
+		if(existing == null) {
+			user.setListener(this);
+			// written as it is then, so the locations added before the listener was set are saved too
+			enqueue(log -> log.writeUser(user));
+		}
+		return existing;
+	}
+
+	@Override
+	public Collection<User> findAll() {
+		return users.findAll();
+	}
+
+	@Override
+	public int count() {
+		return users.count();
+	}
+
+	@Override
+	public void visitedLocationAdded(User user, VisitedLocation visitedLocation, long position) {
+		UUID userId = user.getUserId();
+		enqueue(log -> log.writeVisitedLocation(userId, visitedLocation, position));
+	}
+
+	@Override
+	public void userRewardAdded(User user, UserReward userReward) {
+		UUID userId = user.getUserId();
+		enqueue(log -> log.writeUserReward(userId, userReward));
+	}
+
+	/**
+	 * Writes the queued changes and waits for them to reach the disk.
+	 */
+	public void flush() {
+		runOnStoreThread(this::writePendingRecords);
+	}
+
+	/**
+	 * Writes a snapshot of every user now, and drops the logs it replaces.
+	 */
+	public void snapshot() {
+		runOnStoreThread(this::writeSnapshot);
+	}
+
+	/**
+	 * Changes queued and not written yet.
+	 */
+	public int getPendingRecordCount() {
+		return pendingRecords.size();
+	}
+
+	public long getWrittenRecordCount() {
+		return writtenRecords.sum();
+	}
+
+	/**
+	 * Changes dropped because the queue was full or the store closed, saved by the next snapshot if any.
+	 */
+	public long getDroppedRecordCount() {
+		return droppedRecords.sum();
+	}
+
+	public long getSnapshotCount() {
+		return snapshots.sum();
+	}
+
+	/**
+	 * Stops the store thread and writes the changes still queued.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		storeExecutor.shutdown();
+		try {
+			storeExecutor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		writePendingRecords();
+		log.close();
+	}
+
+	private void enqueue(PendingRecord record) {
+		if(closed || !pendingRecords.offer(record)) {
+			droppedRecords.increment();
+		}
+	}
+
+	private void recover() throws IOException {
+		long start = System.nanoTime();
+		TreeMap<Long, Path> snapshotDirectories = new TreeMap<>();
+		TreeMap<Long, Path> logs = new TreeMap<>();
+		try(Stream<Path> paths = Files.list(directory)) {
+			for(Path path : (Iterable<Path>) paths::iterator) {
+				String name = path.getFileName().toString();
+				Matcher logName = LOG_NAME.matcher(name);
+				Matcher snapshotName = SNAPSHOT_NAME.matcher(name);
+				if(logName.matches()) {
+					logs.put(Long.parseLong(logName.group(1)), path);
+				} else if(snapshotName.matches()) {
+					snapshotDirectories.put(Long.parseLong(snapshotName.group(1)), path);
+				} else if(name.endsWith(TEMPORARY_SUFFIX)) {
+					// a snapshot cut short by a crash
+					deleteRecursively(path);
+				}
+			}
+		}
+
+		long snapshotGeneration = snapshotDirectories.isEmpty() ? 0 : snapshotDirectories.lastKey();
+		if(!snapshotDirectories.isEmpty()) {
+			loadSnapshot(snapshotDirectories.lastEntry().getValue());
+		}
+		RecordReader reader = new RecordReader();
+		LogReplay replay = new LogReplay();
+		for(Path path : logs.tailMap(snapshotGeneration).values()) {
+			reader.read(path, replay);
+		}
+		for(User user : users.findAll()) {
+			user.setListener(this);
+		}
+
+		// each start appends to a new log, the last one may end with a torn record
+		generation = Math.max(snapshotGeneration, logs.isEmpty() ? 0 : logs.lastKey()) + 1;
+		logger.info("Recovered " + users.count() + " users from " + directory + " in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+	}
+
+	private void loadSnapshot(Path snapshotDirectory) throws IOException {
+		List<Path> segments;
+		try(Stream<Path> paths = Files.list(snapshotDirectory)) {
+			segments = paths.sorted().collect(Collectors.toList());
+		}
+		RecordReader.Visitor loader = new RecordReader.Visitor() {
+			@Override
+			public void user(User user) {
+				users.putIfAbsent(user);
+			}
+
+			@Override
+			public void visitedLocation(UUID userId, VisitedLocation visitedLocation, long position) {
+			}
+
+			@Override
+			public void userReward(UUID userId, UserReward userReward) {
+			}
+		};
+		try {
+			segments.parallelStream().forEach(segment -> {
+				try {
+					new RecordReader().read(segment, loader);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private void writePendingRecords() {
+		int written = 0;
+		try {
+			// only what is queued now, so a steady stream of changes can't keep the log from syncing
+			for(int remaining = pendingRecords.size(); remaining > 0; remaining--) {
+				PendingRecord record = pendingRecords.poll();
+				if(record == null) {
+					break;
+				}
+				record.writeTo(log);
+				written++;
+			}
+			if(written > 0) {
+				log.sync();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			writtenRecords.add(written);
+		}
+	}
+
+	private void writeSnapshot() {
+		long start = System.nanoTime();
+		long snapshotGeneration = generation + 1;
+		try {
+			// from here on changes go to the new log, the snapshot holds everything the older logs do
+			writePendingRecords();
+			log.close();
+			generation = snapshotGeneration;
+			log = new RecordWriter(logPath(generation));
+
+			Path temporary = directory.resolve("snapshot-" + snapshotGeneration + TEMPORARY_SUFFIX);
+			deleteRecursively(temporary);
+			Files.createDirectories(temporary);
+			int segmentNumber = 0;
+			RecordWriter segment = new RecordWriter(temporary.resolve(segmentName(segmentNumber)));
+			try {
+				for(User user : users.findAll()) {
+					if(segment.size() >= SEGMENT_BYTES) {
+						segment.close();
+						segment = new RecordWriter(temporary.resolve(segmentName(++segmentNumber)));
+					}
+					segment.writeUser(user);
+				}
+			} finally {
+				segment.close();
+			}
+			Files.move(temporary, directory.resolve("snapshot-" + snapshotGeneration), StandardCopyOption.ATOMIC_MOVE);
+			deleteOlderThan(snapshotGeneration);
+			snapshots.increment();
+			logger.debug("Snapshot " + snapshotGeneration + " of " + users.count() + " users written in "
+					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void deleteOlderThan(long snapshotGeneration) throws IOException {
+		try(Stream<Path> paths = Files.list(directory)) {
+			for(Path path : (Iterable<Path>) paths::iterator) {
+				String name = path.getFileName().toString();
+				Matcher logName = LOG_NAME.matcher(name);
+				Matcher snapshotName = SNAPSHOT_NAME.matcher(name);
+				if(logName.matches() && Long.parseLong(logName.group(1)) < snapshotGeneration
+						|| snapshotName.matches() && Long.parseLong(snapshotName.group(1)) < snapshotGeneration) {
+					deleteRecursively(path);
+				}
+			}
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			writePendingRecords();
+			if(log.size() >= MAX_LOG_BYTES) {
+				writeSnapshot();
+			}
+		} catch (UncheckedIOException e) {
+			// the changes are still in memory, the next snapshot saves them
+			logger.error("Writing the user log failed: " + e.getCause());
+		}
+	}
+
+	private void snapshotQuietly() {
+		try {
+			writeSnapshot();
+		} catch (UncheckedIOException e) {
+			logger.error("Writing a user snapshot failed: " + e.getCause());
+		}
+	}
+
+	private void runOnStoreThread(Runnable task) {
+		try {
+			storeExecutor.submit(task).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private Path logPath(long logGeneration) {
+		return directory.resolve("log-" + logGeneration + ".bin");
+	}
+
+	private static String segmentName(int segmentNumber) {
+		return String.format("segment-%05d.bin", segmentNumber);
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		if(!Files.exists(path)) {
+			return;
+		}
+		List<Path> paths = new ArrayList<>();
+		try(Stream<Path> walk = Files.walk(path)) {
+			walk.sorted(Comparator.reverseOrder()).forEach(paths::add);
+		}
+		for(Path each : paths) {
+			Files.delete(each);
+		}
+	}
+
+	private interface PendingRecord {
+		void writeTo(RecordWriter log) throws IOException;
+	}
+
+	/**
+	 * Applies logged changes on top of the snapshot, skipping the ones it already holds.
+	 */
+	private final class LogReplay implements RecordReader.Visitor {
+		// users by id, only while replaying
+		private final Map<UUID, User> usersById = new HashMap<>();
+
+		LogReplay() {
+			for(User user : users.findAll()) {
+				usersById.put(user.getUserId(), user);
+			}
+		}
+
+		@Override
+		public void user(User user) {
+			User known = usersById.putIfAbsent(user.getUserId(), user);
+			if(known == null) {
+				users.putIfAbsent(user);
+				return;
+			}
+			// added while a snapshot was written, so saved by both the snapshot and the log
+			VisitedLocationHistory history = user.getVisitedLocationHistory();
+			List<VisitedLocation> visitedLocations = history.snapshot();
+			long position = history.getAppendedCount() - visitedLocations.size();
+			for(VisitedLocation visitedLocation : visitedLocations) {
+				known.getVisitedLocationHistory().restore(visitedLocation, position++);
+			}
+			user.getUserRewards().forEach(known::addUserReward);
+		}
+
+		@Override
+		public void visitedLocation(UUID userId, VisitedLocation visitedLocation, long position) {
+			User user = usersById.get(userId);
+			if(user != null) {
+				user.getVisitedLocationHistory().restore(visitedLocation, position);
+			}
+		}
+
+		@Override
+		public void userReward(UUID userId, UserReward userReward) {
+			User user = usersById.get(userId);
+			if(user != null) {
+				user.addUserReward(userReward);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+package tourGuide.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.model.User;
+import tourGuide.model.UserReward;
+import tourGuide.model.VisitedLocationHistory;
+
+/**
+ * Reads back the records of a {@link RecordWriter} file, mapped in memory so no read goes through a system call.
+ */
+class RecordReader {
+
+	interface Visitor {
+
+		void user(User user);
+
+		void visitedLocation(UUID userId, VisitedLocation visitedLocation, long position);
+
+		void userReward(UUID userId, UserReward userReward);
+
+	}
+
+	private final CRC32 crc = new CRC32();
+	private ByteBuffer payload;
+
+	/**
+	 * Hands every record of the file to the visitor, in file order, up to the first torn or corrupt record.
+	 * @return the number of records read
+	 */
+	long read(Path path, Visitor visitor) throws IOException {
+		MappedByteBuffer file;
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// the mapping outlives the channel
+			file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		long records = 0;
+		while(file.remaining() >= RecordWriter.HEADER_BYTES) {
+			int length = file.getInt();
+			int checksum = file.getInt();
+			if(length < 1 || length > file.remaining()) {
+				break;
+			}
+			payload = file.slice();
+			payload.limit(length);
+			crc.reset();
+			crc.update(payload.duplicate());
+			if((int) crc.getValue() != checksum) {
+				break;
+			}
+			file.position(file.position() + length);
+			switch(payload.get()) {
+			case RecordWriter.USER:
+				visitor.user(getUser());
+				break;
+			case RecordWriter.VISITED_LOCATION:
+				UUID userId = getUuid();
+				long position = payload.getLong();
+				visitor.visitedLocation(userId, getVisitedLocation(userId), position);
+				break;
+			case RecordWriter.USER_REWARD:
+				UUID rewardedUserId = getUuid();
+				visitor.userReward(rewardedUserId, getUserReward(rewardedUserId));
+				break;
+			default:
+				throw new IOException("Unknown record type in " + path);
+			}
+			records++;
+		}
+		return records;
+	}
+
+	private User getUser() {
+		UUID userId = getUuid();
+		User user = new User(userId, getString(), getString(), getString(), payload.getInt());
+		VisitedLocationHistory history = user.getVisitedLocationHistory();
+		long appendedCount = payload.getLong();
+		long rewardsWatermark = payload.getLong();
+		int visitedLocationCount = payload.getInt();
+		long position = appendedCount - visitedLocationCount;
+		for(int i = 0; i < visitedLocationCount; i++) {
+			history.restore(getVisitedLocation(userId), position++);
+		}
+		int userRewardCount = payload.getInt();
+		for(int i = 0; i < userRewardCount; i++) {
+			user.addUserReward(getUserReward(userId));
+		}
+		user.advanceRewardsWatermark(rewardsWatermark);
+		return user;
+	}
+
+	private UUID getUuid() {
+		return new UUID(payload.getLong(), payload.getLong());
+	}
+
+	private String getString() {
+		int length = payload.getInt();
+		if(length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		payload.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private double getDegrees() {
+		return payload.getInt() / RecordWriter.UNITS_PER_DEGREE;
+	}
+
+	private VisitedLocation getVisitedLocation(UUID userId) {
+		Location location = new Location(getDegrees(), getDegrees());
+		return new VisitedLocation(userId, location, new Date(payload.getLong()));
+	}
+
+	private UserReward getUserReward(UUID userId) {
+		VisitedLocation visitedLocation = getVisitedLocation(userId);
+		String attractionName = getString();
+		String city = getString();
+		String state = getString();
+		Attraction attraction = new Attraction(attractionName, city, state, getDegrees(), getDegrees());
+		return new UserReward(visitedLocation, attraction, payload.getInt());
+	}
+
+}
@@ -0,0 +1,199 @@
+package tourGuide.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.model.User;
+import tourGuide.model.UserReward;
+import tourGuide.model.VisitedLocationHistory;
+
+/**
+ * Appends user records to a file of the user store.
+ * Each record is framed as its payload length, the CRC32 of its payload then the payload, whose first byte is the
+ * record type, so {@link RecordReader} recognises a record torn by a crash and stops there.
+ * Coordinates are written as integers of 1e-7 degree, the precision the visited location history keeps.
+ * Records are buffered, nothing is guaranteed on disk before {@link #sync()}. Not thread safe.
+ */
+class RecordWriter implements Closeable {
+
+	static final byte USER = 1;
+	static final byte VISITED_LOCATION = 2;
+	static final byte USER_REWARD = 3;
+	static final int HEADER_BYTES = 8;
+	static final double UNITS_PER_DEGREE = 1e7;
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	private final FileChannel channel;
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	private final CRC32 crc = new CRC32();
+	private ByteBuffer payload = ByteBuffer.allocate(4096);
+	private long size;
+
+	RecordWriter(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		size = channel.size();
+	}
+
+	/**
+	 * The user with its retained history and rewards, as they are when written.
+	 */
+	void writeUser(User user) throws IOException {
+		VisitedLocationHistory history = user.getVisitedLocationHistory();
+		List<VisitedLocation> visitedLocations;
+		long appendedCount;
+		// the positions of the locations are only known if no location is added in between
+		synchronized(history) {
+			appendedCount = history.getAppendedCount();
+			visitedLocations = history.snapshot();
+		}
+		List<UserReward> userRewards = user.getUserRewards();
+
+		payload.clear();
+		payload.put(USER);
+		putUuid(user.getUserId());
+		putString(user.getUserName());
+		putString(user.getPhoneNumber());
+		putString(user.getEmailAddress());
+		ensure(28);
+		payload.putInt(history.getCapacity());
+		payload.putLong(appendedCount);
+		payload.putLong(user.getRewardsWatermark());
+		payload.putInt(visitedLocations.size());
+		for(VisitedLocation visitedLocation : visitedLocations) {
+			putVisitedLocation(visitedLocation);
+		}
+		ensure(4);
+		payload.putInt(userRewards.size());
+		for(UserReward userReward : userRewards) {
+			putUserReward(userReward);
+		}
+		append();
+	}
+
+	void writeVisitedLocation(UUID userId, VisitedLocation visitedLocation, long position) throws IOException {
+		payload.clear();
+		payload.put(VISITED_LOCATION);
+		putUuid(userId);
+		ensure(8);
+		payload.putLong(position);
+		putVisitedLocation(visitedLocation);
+		append();
+	}
+
+	void writeUserReward(UUID userId, UserReward userReward) throws IOException {
+		payload.clear();
+		payload.put(USER_REWARD);
+		putUuid(userId);
+		putUserReward(userReward);
+		append();
+	}
+
+	/**
+	 * Bytes written so far, buffered ones included.
+	 */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * Writes the buffered records and waits for them to reach the disk.
+	 */
+	void sync() throws IOException {
+		flush();
+		channel.force(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			sync();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void append() throws IOException {
+		payload.flip();
+		crc.reset();
+		crc.update(payload.duplicate());
+		header.clear();
+		header.putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+		size += HEADER_BYTES + payload.remaining();
+		if(buffer.remaining() < HEADER_BYTES + payload.remaining()) {
+			flush();
+		}
+		if(buffer.remaining() < HEADER_BYTES + payload.remaining()) {
+			// larger than the whole buffer
+			writeFully(header);
+			writeFully(payload);
+		} else {
+			buffer.put(header).put(payload);
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		writeFully(buffer);
+		buffer.clear();
+	}
+
+	private void writeFully(ByteBuffer source) throws IOException {
+		while(source.hasRemaining()) {
+			channel.write(source);
+		}
+	}
+
+	private void putUuid(UUID uuid) {
+		ensure(16);
+		payload.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+	}
+
+	private void putString(String value) {
+		byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+		ensure(4 + bytes.length);
+		payload.putInt(value == null ? -1 : bytes.length).put(bytes);
+	}
+
+	private void putLocation(Location location) {
+		ensure(8);
+		payload.putInt((int) Math.round(location.latitude * UNITS_PER_DEGREE));
+		payload.putInt((int) Math.round(location.longitude * UNITS_PER_DEGREE));
+	}
+
+	private void putVisitedLocation(VisitedLocation visitedLocation) {
+		putLocation(visitedLocation.location);
+		ensure(8);
+		payload.putLong(visitedLocation.timeVisited.getTime());
+	}
+
+	private void putUserReward(UserReward userReward) {
+		putVisitedLocation(userReward.visitedLocation);
+		putString(userReward.attraction.attractionName);
+		putString(userReward.attraction.city);
+		putString(userReward.attraction.state);
+		putLocation(userReward.attraction);
+		ensure(4);
+		payload.putInt(userReward.getRewardPoints());
+	}
+
+	private void ensure(int bytes) {
+		if(payload.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * payload.capacity(), payload.position() + bytes));
+			payload.flip();
+			larger.put(payload);
+			payload = larger;
+		}
+	}
+
+}
@@ -0,0 +1,25 @@
+package tourGuide.repository;
+
+import java.util.Collection;
+
+import tourGuide.model.User;
+
+public interface UserRepository {
+
+	User findByUserName(String userName);
+	
+	/**
+	 * Atomically stores the user unless one with the same user name already exists.
+	 * @return the user already stored under that name, or null if the given user was added
+	 */
+	User putIfAbsent(User user);
+	
+	/**
+	 * Live view of every stored user. Iteration is weakly consistent: it never fails
+	 * on concurrent additions and may or may not reflect users added while iterating.
+	 */
+	Collection<User> findAll();
+	
+	int count();
+	
+}
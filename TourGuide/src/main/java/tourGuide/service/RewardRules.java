@@ -0,0 +1,52 @@
+package tourGuide.service;
+
+/**
+ * The rules rewards are granted by, never changed once built: a change makes new rules of the next version,
+ * which RewardsService swaps in at once. A calculation reads the rules once and applies them throughout,
+ * so it never mixes two versions.
+ */
+public final class RewardRules {
+
+	public static final RewardRules DEFAULT = new RewardRules(1, 10, 200);
+	
+	private final long version;
+	// miles from a visited location within which attractions are rewarded
+	private final int proximityBuffer;
+	// miles from a location within which attractions are listed as nearby
+	private final int attractionProximityRange;
+	
+	private RewardRules(long version, int proximityBuffer, int attractionProximityRange) {
+		if(proximityBuffer < 0 || attractionProximityRange < 0) {
+			throw new IllegalArgumentException("Proximities must not be negative: " + proximityBuffer + ", " + attractionProximityRange);
+		}
+		this.version = version;
+		this.proximityBuffer = proximityBuffer;
+		this.attractionProximityRange = attractionProximityRange;
+	}
+	
+	public RewardRules withProximityBuffer(int proximityBuffer) {
+		return new RewardRules(version + 1, proximityBuffer, attractionProximityRange);
+	}
+	
+	public RewardRules withAttractionProximityRange(int attractionProximityRange) {
+		return new RewardRules(version + 1, proximityBuffer, attractionProximityRange);
+	}
+	
+	public long getVersion() {
+		return version;
+	}
+	
+	public int getProximityBuffer() {
+		return proximityBuffer;
+	}
+	
+	public int getAttractionProximityRange() {
+		return attractionProximityRange;
+	}
+	
+	@Override
+	public String toString() {
+		return "RewardRules v" + version + " (proximityBuffer=" + proximityBuffer + ", attractionProximityRange=" + attractionProximityRange + ")";
+	}
+	
+}
@@ -0,0 +1,267 @@
+package tourGuide.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import tourGuide.helper.ExecutionMode;
+import tourGuide.model.User;
+import tourGuide.repository.UserRepository;
+
+/**
+ * Re-evaluates the history users were already rewarded for under new reward rules, in the background.
+ * The users present when the run starts are cut into chunks which the workers take one at a time, so a run
+ * over 100k users never holds up tracking or the rewards pipeline, which keep going with the new rules meanwhile.
+ * Runs can be throttled to a number of users per second, adjustable while they run,
+ * and a run is cancelled by the next one, whose rules are newer.
+ */
+@Service
+public class RewardsBackfill implements AutoCloseable {
+	private Logger logger = LoggerFactory.getLogger(RewardsBackfill.class);
+
+	private static final int DEFAULT_CHUNK_SIZE = 1000;
+	private static final int DEFAULT_PARALLELISM = 16;
+
+	private final RewardsService rewardsService;
+	private final UserRepository userRepository;
+	private final int chunkSize;
+	private final int parallelism;
+	private final ExecutorService workers;
+	// 0 for no limit
+	private volatile int maxUsersPerSecond;
+	// time the next throttled user may start at
+	private final AtomicLong nextStartNanos = new AtomicLong(System.nanoTime());
+	private volatile Progress lastRun;
+
+	public RewardsBackfill(RewardsService rewardsService, UserRepository userRepository) {
+		this(rewardsService, userRepository, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM, 0, ExecutionMode.PLATFORM);
+	}
+
+	@Autowired
+	public RewardsBackfill(RewardsService rewardsService, UserRepository userRepository,
+			@Value("${tourGuide.rewards.backfill.chunkSize}") int chunkSize,
+			@Value("${tourGuide.rewards.backfill.parallelism}") int parallelism,
+			@Value("${tourGuide.rewards.backfill.maxUsersPerSecond}") int maxUsersPerSecond,
+			@Value("${tourGuide.execution.mode}") ExecutionMode executionMode) {
+		if(chunkSize < 1 || parallelism < 1) {
+			throw new IllegalArgumentException("Invalid backfill chunks: " + chunkSize + " users, " + parallelism + " at once");
+		}
+		this.rewardsService = rewardsService;
+		this.userRepository = userRepository;
+		this.chunkSize = chunkSize;
+		this.parallelism = parallelism;
+		this.maxUsersPerSecond = maxUsersPerSecond;
+		this.workers = executionMode.newExecutor("rewards-backfill", parallelism);
+	}
+
+	/**
+	 * Swaps in the rules the change makes of the current ones, then re-evaluates every user's history under them.
+	 */
+	public Progress changeRules(UnaryOperator<RewardRules> change) {
+		return start(rewardsService.updateRules(change));
+	}
+
+	/**
+	 * Starts re-evaluating every user's history under the rules, cancelling the run in progress if any.
+	 */
+	public synchronized Progress start(RewardRules rules) {
+		Progress previous = lastRun;
+		if(previous != null) {
+			previous.cancel();
+		}
+		List<User> users = new ArrayList<>(userRepository.findAll());
+		Progress progress = new Progress(rules, users.size());
+		lastRun = progress;
+		logger.info("Re-evaluating the rewards of " + users.size() + " users under " + rules);
+
+		int chunkCount = (users.size() + chunkSize - 1) / chunkSize;
+		AtomicInteger nextChunk = new AtomicInteger();
+		CompletableFuture<?>[] runs = new CompletableFuture<?>[Math.min(parallelism, chunkCount)];
+		for(int i = 0; i < runs.length; i++) {
+			runs[i] = CompletableFuture.runAsync(() -> {
+				for(int chunk; !progress.isCancelled() && (chunk = nextChunk.getAndIncrement()) < chunkCount; ) {
+					List<User> chunkUsers = users.subList(chunk * chunkSize, Math.min(users.size(), (chunk + 1) * chunkSize));
+					reevaluate(chunkUsers, progress);
+				}
+			}, workers);
+		}
+		CompletableFuture.allOf(runs).whenComplete((result, e) -> {
+			progress.finish();
+			logger.info("Rewards re-evaluation under " + rules + " " + progress.getState().name().toLowerCase()
+					+ ": " + progress.getProcessedUserCount() + "/" + progress.getTotalUserCount() + " users, "
+					+ progress.getRewardsGrantedCount() + " rewards granted");
+		});
+		return progress;
+	}
+
+	/**
+	 * The current or last run, null if none was started.
+	 */
+	public Progress getLastRun() {
+		return lastRun;
+	}
+
+	public int getMaxUsersPerSecond() {
+		return maxUsersPerSecond;
+	}
+
+	/**
+	 * Throttles the runs to the given pace from now on, 0 to let them run at full speed.
+	 */
+	public void setMaxUsersPerSecond(int maxUsersPerSecond) {
+		this.maxUsersPerSecond = maxUsersPerSecond;
+	}
+
+	@Override
+	public void close() {
+		Progress progress = lastRun;
+		if(progress != null) {
+			progress.cancel();
+		}
+		workers.shutdownNow();
+	}
+
+	private void reevaluate(List<User> users, Progress progress) {
+		for(User user : users) {
+			if(progress.isCancelled()) {
+				return;
+			}
+			try {
+				awaitTurn();
+				progress.userDone(rewardsService.reevaluateRewards(user, progress.getRules()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				progress.cancel();
+				return;
+			} catch (RuntimeException e) {
+				logger.debug("Re-evaluating the rewards of " + user.getUserName() + " failed: " + e);
+				progress.userFailed();
+			}
+		}
+	}
+
+	private void awaitTurn() throws InterruptedException {
+		int rate = maxUsersPerSecond;
+		if(rate <= 0) {
+			return;
+		}
+		long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+		long now = System.nanoTime();
+		// each user reserves the next free slot, an idle throttle doesn't bank slots for a burst
+		long start = nextStartNanos.accumulateAndGet(now, (next, time) -> Math.max(next, time) + interval) - interval;
+		if(start > now) {
+			TimeUnit.NANOSECONDS.sleep(start - now);
+		}
+	}
+
+	/**
+	 * Progress of a run, updated as its users are re-evaluated.
+	 */
+	public static final class Progress {
+
+		public enum State { RUNNING, DONE, CANCELLED }
+
+		private final RewardRules rules;
+		private final int totalUsers;
+		private final long startNanos = System.nanoTime();
+		private final LongAdder processedUsers = new LongAdder();
+		private final LongAdder failedUsers = new LongAdder();
+		private final LongAdder rewardsGranted = new LongAdder();
+		private final CompletableFuture<Progress> completion = new CompletableFuture<>();
+		private volatile boolean cancelled;
+		private volatile long endNanos;
+
+		Progress(RewardRules rules, int totalUsers) {
+			this.rules = rules;
+			this.totalUsers = totalUsers;
+		}
+
+		public RewardRules getRules() {
+			return rules;
+		}
+
+		public State getState() {
+			if(!completion.isDone()) {
+				return State.RUNNING;
+			}
+			return cancelled ? State.CANCELLED : State.DONE;
+		}
+
+		public int getTotalUserCount() {
+			return totalUsers;
+		}
+
+		/**
+		 * Users re-evaluated so far, failed ones included.
+		 */
+		public long getProcessedUserCount() {
+			return processedUsers.sum();
+		}
+
+		public long getFailedUserCount() {
+			return failedUsers.sum();
+		}
+
+		public long getRewardsGrantedCount() {
+			return rewardsGranted.sum();
+		}
+
+		public double getFractionDone() {
+			return totalUsers == 0 ? 1 : (double) getProcessedUserCount() / totalUsers;
+		}
+
+		public long getElapsedMillis() {
+			long end = completion.isDone() ? endNanos : System.nanoTime();
+			return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+		}
+
+		/**
+		 * Completes once the run is over, done or cancelled.
+		 */
+		public CompletableFuture<Progress> getCompletion() {
+			return completion;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * Stops the run once the users being re-evaluated are done.
+		 */
+		public void cancel() {
+			if(!completion.isDone()) {
+				cancelled = true;
+			}
+		}
+
+		void userDone(int granted) {
+			processedUsers.increment();
+			rewardsGranted.add(granted);
+		}
+
+		void userFailed() {
+			processedUsers.increment();
+			failedUsers.increment();
+		}
+
+		void finish() {
+			endNanos = System.nanoTime();
+			completion.complete(this);
+		}
+
+	}
+
+}
@@ -1,7 +1,17 @@
 package tourGuide.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
@@ -9,58 +19,213 @@ import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import tourGuide.client.GpsClient;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.RewardCentralClient;
+import tourGuide.client.RewardClient;
+import tourGuide.helper.ExecutionMode;
+import tourGuide.location.AttractionDistances;
+import tourGuide.location.AttractionIndex;
 import tourGuide.model.User;
 import tourGuide.model.UserReward;
+import tourGuide.model.VisitedLocationHistory;
 
 @Service
-public class RewardsService {
+public class RewardsService implements AutoCloseable {
     private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+    private static final int DEFAULT_REWARDS_POOL_SIZE = 200;
 
-	// proximity in miles
-    private int defaultProximityBuffer = 10;
-	private int proximityBuffer = defaultProximityBuffer;
-	private int attractionProximityRange = 200;
-	private final GpsUtil gpsUtil;
-	private final RewardCentral rewardsCentral;
+	// swapped whole, calculations read it once
+	private final AtomicReference<RewardRules> rules = new AtomicReference<>(RewardRules.DEFAULT);
+	private final GpsClient gpsClient;
+	private final RewardClient rewardClient;
+	// dedicated executor for reward calculations, RewardCentral lookups block for up to a second
+	private final ExecutorService rewardsExecutor;
+	private volatile AttractionIndex attractionIndex;
+	private final AtomicInteger pendingCalculations = new AtomicInteger();
+	private final LongAdder calculationCount = new LongAdder();
+	private final LongAdder calculationTime = new LongAdder();
+	private final LongAdder rewardsGranted = new LongAdder();
 	
 	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral) {
-		this.gpsUtil = gpsUtil;
-		this.rewardsCentral = rewardCentral;
+		this(new GpsUtilClient(gpsUtil), new RewardCentralClient(rewardCentral));
+	}
+	
+	public RewardsService(GpsClient gpsClient, RewardClient rewardClient) {
+		this(gpsClient, rewardClient, DEFAULT_REWARDS_POOL_SIZE, ExecutionMode.PLATFORM);
+	}
+	
+	@Autowired
+	public RewardsService(GpsClient gpsClient, RewardClient rewardClient,
+			@Value("${tourGuide.rewards.poolSize}") int rewardsPoolSize,
+			@Value("${tourGuide.execution.mode}") ExecutionMode executionMode) {
+		this.gpsClient = gpsClient;
+		this.rewardClient = rewardClient;
+		this.rewardsExecutor = executionMode.newExecutor("rewards-worker", rewardsPoolSize);
+		this.attractionIndex = new AttractionIndex(gpsClient.getAttractions());
+	}
+	
+	public RewardRules getRules() {
+		return rules.get();
+	}
+	
+	/**
+	 * Atomically swaps in the rules the change makes of the current ones, the change may be applied more than once
+	 * under contention. Calculations started since apply the new rules, history already evaluated is left
+	 * to a {@link RewardsBackfill}.
+	 * @return the new rules
+	 */
+	public RewardRules updateRules(UnaryOperator<RewardRules> change) {
+		return rules.updateAndGet(change);
 	}
 	
 	public void setProximityBuffer(int proximityBuffer) {
-		this.proximityBuffer = proximityBuffer;
+		updateRules(r -> r.withProximityBuffer(proximityBuffer));
 	}
 	
 	public void setDefaultProximityBuffer() {
-		proximityBuffer = defaultProximityBuffer;
+		setProximityBuffer(RewardRules.DEFAULT.getProximityBuffer());
+	}
+	
+	public AttractionIndex getAttractionIndex() {
+		return attractionIndex;
 	}
 	
+	/**
+	 * Fetches the attractions from gpsUtil and swaps in a new index only if they changed.
+	 */
+	public synchronized void refreshAttractions() {
+		List<Attraction> attractions = gpsClient.getAttractions();
+		if(!attractionIndex.hasSameAttractions(attractions)) {
+			attractionIndex = new AttractionIndex(attractions);
+		}
+	}
+	
+	/**
+	 * Rewards the user for the attractions near the locations visited since the last evaluation.
+	 * Locations already evaluated are skipped, so the cost doesn't grow with the history length.
+	 */
 	public void calculateRewards(User user) {
-		List<VisitedLocation> userLocations = user.getVisitedLocations();
-		List<Attraction> attractions = gpsUtil.getAttractions();
-		
-		for(VisitedLocation visitedLocation : userLocations) {
-			for(Attraction attraction : attractions) {
-				if(user.getUserRewards().stream().filter(r -> r.attraction.attractionName.equals(attraction.attractionName)).count() == 0) {
-					if(nearAttraction(visitedLocation, attraction)) {
-						user.addUserReward(new UserReward(visitedLocation, attraction, getRewardPoints(attraction, user)));
+		long start = System.nanoTime();
+		try {
+			rewardNewLocations(user);
+		} finally {
+			calculationCount.increment();
+			calculationTime.add(System.nanoTime() - start);
+		}
+	}
+	
+	private void rewardNewLocations(User user) {
+		VisitedLocationHistory history = user.getVisitedLocationHistory();
+		long watermark = user.getRewardsWatermark();
+		long appendedCount = history.getAppendedCount();
+		if(appendedCount <= watermark) {
+			return;
+		}
+		rewardLocations(user, history.since(watermark), rules.get());
+		user.advanceRewardsWatermark(appendedCount);
+	}
+	
+	/**
+	 * Evaluates the user's whole retained history again under the given rules, rewarding the attractions
+	 * they newly qualify for. Rewards already granted are kept, whatever the rules.
+	 * @return the number of rewards granted
+	 */
+	public int reevaluateRewards(User user, RewardRules rules) {
+		VisitedLocationHistory history = user.getVisitedLocationHistory();
+		long appendedCount = history.getAppendedCount();
+		int granted = rewardLocations(user, history.snapshot(), rules);
+		user.advanceRewardsWatermark(appendedCount);
+		return granted;
+	}
+	
+	private int rewardLocations(User user, List<VisitedLocation> visitedLocations, RewardRules rules) {
+		AttractionIndex attractions = attractionIndex;
+		if(user.getUserRewards().size() >= attractions.size()) {
+			return 0;
+		}
+		int granted = 0;
+		AttractionDistances distances = attractions.getDistances();
+		AttractionDistances.Radius radius = new AttractionDistances.Radius(rules.getProximityBuffer());
+		int[] nearby = new int[distances.size()];
+		for(VisitedLocation visitedLocation : visitedLocations) {
+			int nearbyCount = distances.withinRadius(visitedLocation.location, radius, nearby);
+			for(int i = 0; i < nearbyCount; i++) {
+				// an attraction is rewarded once, so its points are only ever looked up once per user
+				if(!user.hasUserReward(distances.getAttractionId(nearby[i]))) {
+					Attraction attraction = distances.getAttraction(nearby[i]);
+					if(user.addUserReward(new UserReward(visitedLocation, attraction, getRewardPoints(attraction, user)))) {
+						rewardsGranted.increment();
+						granted++;
 					}
 				}
 			}
 		}
+		return granted;
+	}
+	
+	public CompletableFuture<Void> calculateRewardsAsync(User user) {
+		pendingCalculations.incrementAndGet();
+		return CompletableFuture.runAsync(() -> calculateRewards(user), rewardsExecutor)
+				.whenComplete((result, e) -> pendingCalculations.decrementAndGet());
+	}
+	
+	/**
+	 * Asynchronous reward calculations submitted and not finished yet.
+	 */
+	public int getPendingCalculationCount() {
+		return pendingCalculations.get();
+	}
+	
+	public long getCalculationCount() {
+		return calculationCount.sum();
+	}
+	
+	public long getCalculationTimeNanos() {
+		return calculationTime.sum();
+	}
+	
+	public long getRewardsGrantedCount() {
+		return rewardsGranted.sum();
+	}
+	
+	/**
+	 * Stops the rewards pool, the calculations not started yet are abandoned.
+	 */
+	@Override
+	public void close() {
+		rewardsExecutor.shutdownNow();
+	}
+	
+	/**
+	 * Spreads the reward calculation of every given user over the rewards pool.
+	 * The returned future completes once all of them have been calculated.
+	 */
+	public CompletableFuture<Void> calculateRewardsForAll(Collection<User> users) {
+		CompletableFuture<?>[] futures = users.stream()
+				.map(this::calculateRewardsAsync)
+				.toArray(CompletableFuture[]::new);
+		return CompletableFuture.allOf(futures);
 	}
 	
 	public boolean isWithinAttractionProximity(Attraction attraction, Location location) {
-		return getDistance(attraction, location) > attractionProximityRange ? false : true;
+		return getDistance(attraction, location) > rules.get().getAttractionProximityRange() ? false : true;
 	}
 	
-	private boolean nearAttraction(VisitedLocation visitedLocation, Attraction attraction) {
-		return getDistance(attraction, visitedLocation.location) > proximityBuffer ? false : true;
+	public List<Attraction> getAttractionsWithinProximity(Location location) {
+		return attractionIndex.withinRadius(location, rules.get().getAttractionProximityRange());
 	}
 	
 	private int getRewardPoints(Attraction attraction, User user) {
-		return rewardsCentral.getAttractionRewardPoints(attraction.attractionId, user.getUserId());
+		return getRewardPoints(attraction, user.getUserId());
+	}
+	
+	private int getRewardPoints(Attraction attraction, UUID userId) {
+		return rewardClient.getAttractionRewardPoints(attraction.attractionId, userId);
+	}
+	
+	public CompletableFuture<Integer> getRewardPointsAsync(Attraction attraction, UUID userId) {
+		return CompletableFuture.supplyAsync(() -> getRewardPoints(attraction, userId), rewardsExecutor);
 	}
 	
 	public double getDistance(Location loc1, Location loc2) {
@@ -1,110 +1,355 @@
 package tourGuide.service;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Objects;
+import java.util.SplittableRandom;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
+import tourGuide.cache.LoadingCache;
+import tourGuide.cache.LruCache;
+import tourGuide.client.GpsClient;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.PricingClient;
+import tourGuide.client.TripPricerClient;
+import tourGuide.helper.ExecutionMode;
 import tourGuide.helper.InternalTestHelper;
+import tourGuide.pipeline.RewardsPipeline;
 import tourGuide.tracker.Tracker;
+import tourGuide.model.NearbyAttraction;
 import tourGuide.model.User;
+import tourGuide.model.UserPreferences;
 import tourGuide.model.UserReward;
+import tourGuide.repository.InMemoryUserRepository;
+import tourGuide.repository.UserRepository;
 import tripPricer.Provider;
 import tripPricer.TripPricer;
 
 @Service
-public class TourGuideService {
+public class TourGuideService implements AutoCloseable {
 	private Logger logger = LoggerFactory.getLogger(TourGuideService.class);
-	private final GpsUtil gpsUtil;
+	private final GpsClient gpsClient;
 	private final RewardsService rewardsService;
-	private final TripPricer tripPricer = new TripPricer();
+	// rewards of tracked locations are calculated there, apart from tracking
+	private final RewardsPipeline rewardsPipeline;
+	// closed with the service when the service made it, by its own owner otherwise
+	private final boolean ownsRewardsPipeline;
+	// Database connection will be used for external users, but for testing purposes internal users are provided and stored in memory
+	private final UserRepository userRepository;
+	private final PricingClient pricingClient;
+	// each user's last trip deals, shared by identical requests for a while and replaced once the request changes
+	private final LoadingCache<UUID, TripDeals> tripDealsCache;
+	// executor the tracking of every user is fanned out over
+	private final ExecutorService trackingExecutor;
+	// most recent location of every user, kept current by tracking so it can be read without walking any history
+	private final ConcurrentMap<UUID, Location> latestLocations = new ConcurrentHashMap<>();
+	// completes once the internal users are all generated, right away if there are none to generate
+	private final CompletableFuture<Void> internalUsersReady = new CompletableFuture<>();
+	private final AtomicBoolean internalUsersStarted = new AtomicBoolean();
 	public final Tracker tracker;
 	boolean testMode = true;
 	
 	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
-		this.gpsUtil = gpsUtil;
+		this(new GpsUtilClient(gpsUtil), rewardsService, new TripPricerClient(new TripPricer()));
+	}
+	
+	public TourGuideService(GpsClient gpsClient, RewardsService rewardsService, PricingClient pricingClient) {
+		this(gpsClient, rewardsService, pricingClient, new InMemoryUserRepository(), DEFAULT_TRACKING_POOL_SIZE, ExecutionMode.PLATFORM);
+	}
+	
+	public TourGuideService(GpsClient gpsClient, RewardsService rewardsService, PricingClient pricingClient,
+			UserRepository userRepository, int trackingPoolSize, ExecutionMode executionMode) {
+		this(gpsClient, rewardsService, pricingClient, userRepository, trackingPoolSize, executionMode, false);
+	}
+	
+	public TourGuideService(GpsClient gpsClient, RewardsService rewardsService, PricingClient pricingClient,
+			UserRepository userRepository, int trackingPoolSize, ExecutionMode executionMode, boolean internalUsersInBackground) {
+		this(gpsClient, rewardsService, pricingClient, userRepository, trackingPoolSize, executionMode, internalUsersInBackground, true);
+	}
+	
+	/**
+	 * @param trackingEnabled false not to start the background tracker, when whoever uses the service tracks the users itself
+	 */
+	public TourGuideService(GpsClient gpsClient, RewardsService rewardsService, PricingClient pricingClient,
+			UserRepository userRepository, int trackingPoolSize, ExecutionMode executionMode, boolean internalUsersInBackground,
+			boolean trackingEnabled) {
+		this(gpsClient, rewardsService, pricingClient, userRepository, new RewardsPipeline(rewardsService, executionMode), true,
+				trackingPoolSize, executionMode, internalUsersInBackground, trackingEnabled,
+				TRIP_DEALS_CACHE_SIZE, TRIP_DEALS_TIME_TO_LIVE_MINUTES);
+	}
+	
+	/**
+	 * The rewards pipeline is left to its owner to close.
+	 */
+	@Autowired
+	public TourGuideService(GpsClient gpsClient, RewardsService rewardsService, PricingClient pricingClient,
+			UserRepository userRepository, RewardsPipeline rewardsPipeline,
+			@Value("${tourGuide.tracking.poolSize}") int trackingPoolSize,
+			@Value("${tourGuide.execution.mode}") ExecutionMode executionMode,
+			@Value("${tourGuide.internalUsers.background}") boolean internalUsersInBackground,
+			@Value("${tourGuide.tracking.enabled}") boolean trackingEnabled,
+			@Value("${tourGuide.tripDeals.cache.maximumSize}") int tripDealsCacheSize,
+			@Value("${tourGuide.tripDeals.cache.timeToLiveMinutes}") long tripDealsTimeToLive) {
+		this(gpsClient, rewardsService, pricingClient, userRepository, rewardsPipeline, false,
+				trackingPoolSize, executionMode, internalUsersInBackground, trackingEnabled, tripDealsCacheSize, tripDealsTimeToLive);
+	}
+	
+	private TourGuideService(GpsClient gpsClient, RewardsService rewardsService, PricingClient pricingClient,
+			UserRepository userRepository, RewardsPipeline rewardsPipeline, boolean ownsRewardsPipeline, int trackingPoolSize,
+			ExecutionMode executionMode, boolean internalUsersInBackground, boolean trackingEnabled,
+			int tripDealsCacheSize, long tripDealsTimeToLive) {
+		this.gpsClient = gpsClient;
 		this.rewardsService = rewardsService;
+		this.rewardsPipeline = rewardsPipeline;
+		this.ownsRewardsPipeline = ownsRewardsPipeline;
+		this.pricingClient = pricingClient;
+		this.userRepository = userRepository;
+		this.trackingExecutor = executionMode.newExecutor("tracking-worker", trackingPoolSize);
+		this.tripDealsCache = new LruCache<>(tripDealsCacheSize, tripDealsTimeToLive, TimeUnit.MINUTES);
 		
-		if(testMode) {
+		// users recovered from a persistent repository are kept as they are
+		for(User user : userRepository.findAll()) {
+			trackLatestLocation(user);
+		}
+		if(testMode && userRepository.count() == 0) {
 			logger.info("TestMode enabled");
-			logger.debug("Initializing users");
-			initializeInternalUsers();
-			logger.debug("Finished initializing users");
+			if(internalUsersInBackground) {
+				logger.debug("Initializing users once the application is ready");
+			} else {
+				logger.debug("Initializing users");
+				populateInternalUsers().join();
+				logger.debug("Finished initializing users");
+			}
+		} else {
+			internalUsersStarted.set(true);
+			internalUsersReady.complete(null);
 		}
-		tracker = new Tracker(this);
+		tracker = new Tracker(this, trackingEnabled);
 		addShutDownHook();
 	}
 	
+	/**
+	 * Generates the internal users in the background once the application is ready, when they weren't generated
+	 * by the constructor, so they don't hold up readiness. Users show up as they're generated and the tracker
+	 * picks them up on its next turn.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		CompletableFuture.runAsync(this::populateInternalUsers);
+	}
+	
+	/**
+	 * Completes once the internal users are all generated.
+	 */
+	public CompletableFuture<Void> getInternalUsersReady() {
+		return internalUsersReady;
+	}
+	
 	public List<UserReward> getUserRewards(User user) {
 		return user.getUserRewards();
 	}
 	
 	public VisitedLocation getUserLocation(User user) {
-		VisitedLocation visitedLocation = (user.getVisitedLocations().size() > 0) ?
-			user.getLastVisitedLocation() :
-			trackUserLocation(user);
-		return visitedLocation;
+		VisitedLocation lastVisitedLocation = user.getLastVisitedLocation();
+		return lastVisitedLocation != null ? lastVisitedLocation : trackUserLocation(user);
+	}
+	
+	/**
+	 * The user's last visited location, or the user tracked on the tracking pool if it has none yet.
+	 */
+	public CompletableFuture<VisitedLocation> getUserLocationAsync(User user) {
+		VisitedLocation lastVisitedLocation = user.getLastVisitedLocation();
+		return lastVisitedLocation != null ? CompletableFuture.completedFuture(lastVisitedLocation) : trackUserLocationAsync(user);
 	}
 	
 	public User getUser(String userName) {
-		return internalUserMap.get(userName);
+		return userRepository.findByUserName(userName);
 	}
 	
-	public List<User> getAllUsers() {
-		return internalUserMap.values().stream().collect(Collectors.toList());
+	/**
+	 * Live view of all users, safe to iterate while users are being added.
+	 */
+	public Collection<User> getAllUsers() {
+		return userRepository.findAll();
 	}
 	
 	public void addUser(User user) {
-		if(!internalUserMap.containsKey(user.getUserName())) {
-			internalUserMap.put(user.getUserName(), user);
+		if(userRepository.putIfAbsent(user) == null) {
+			trackLatestLocation(user);
 		}
 	}
 	
+	/**
+	 * Live, read-only view of every user's most recent location keyed by userId.
+	 * Iterating it is weakly consistent and never blocks tracking.
+	 */
+	public Map<UUID, Location> getAllCurrentLocations() {
+		return Collections.unmodifiableMap(latestLocations);
+	}
+	
+	/**
+	 * Trip deals are cached per user along with the party size, trip duration and reward points they were priced for,
+	 * so changing the preferences or earning rewards replaces the user's entry with new deals from TripPricer.
+	 */
 	public List<Provider> getTripDeals(User user) {
-		int cumulatativeRewardPoints = user.getUserRewards().stream().mapToInt(i -> i.getRewardPoints()).sum();
-		List<Provider> providers = tripPricer.getPrice(tripPricerApiKey, user.getUserId(), user.getUserPreferences().getNumberOfAdults(), 
-				user.getUserPreferences().getNumberOfChildren(), user.getUserPreferences().getTripDuration(), cumulatativeRewardPoints);
-		user.setTripDeals(providers);
-		return providers;
+		UserPreferences preferences = user.getUserPreferences();
+		TripDealsKey key = new TripDealsKey(user.getUserId(), preferences.getNumberOfAdults(),
+				preferences.getNumberOfChildren(), preferences.getTripDuration(), user.getCumulativeRewardPoints());
+		TripDeals tripDeals = tripDealsCache.get(user.getUserId(), userId -> priceTrip(key));
+		if(!tripDeals.key.equals(key)) {
+			tripDealsCache.invalidate(user.getUserId());
+			tripDeals = tripDealsCache.get(user.getUserId(), userId -> priceTrip(key));
+		}
+		user.setTripDeals(tripDeals.providers);
+		return tripDeals.providers;
 	}
 	
+	/**
+	 * Asks for the trip deals on the tracking pool, which is sized for calls blocked on upstreams.
+	 */
+	public CompletableFuture<List<Provider>> getTripDealsAsync(User user) {
+		return CompletableFuture.supplyAsync(() -> getTripDeals(user), trackingExecutor);
+	}
+	
+	/**
+	 * Fetches and records the user location, and publishes it to the rewards pipeline.
+	 * Rewards are calculated afterwards, without holding up tracking.
+	 */
 	public VisitedLocation trackUserLocation(User user) {
-		VisitedLocation visitedLocation = gpsUtil.getUserLocation(user.getUserId());
-		user.addToVisitedLocations(visitedLocation);
-		rewardsService.calculateRewards(user);
+		VisitedLocation visitedLocation = gpsClient.getUserLocation(user.getUserId());
+		addVisitedLocation(user, visitedLocation);
+		rewardsPipeline.publish(user, visitedLocation);
 		return visitedLocation;
 	}
+	
+	/**
+	 * Tracks the user on the tracking pool. The future completes once the location is recorded and published
+	 * to the rewards pipeline, which may wait for room if rewards fall behind.
+	 */
+	public CompletableFuture<VisitedLocation> trackUserLocationAsync(User user) {
+		return CompletableFuture.supplyAsync(() -> gpsClient.getUserLocation(user.getUserId()), trackingExecutor)
+				.thenApply(visitedLocation -> {
+					addVisitedLocation(user, visitedLocation);
+					rewardsPipeline.publish(user, visitedLocation);
+					return visitedLocation;
+				});
+	}
+	
+	/**
+	 * Tracks every given user on the tracking pool.
+	 * The returned future completes once all of them have been tracked, their rewards may still be calculating.
+	 */
+	public CompletableFuture<Void> trackAllUsers(Collection<User> users) {
+		CompletableFuture<?>[] futures = users.stream()
+				.map(this::trackUserLocationAsync)
+				.toArray(CompletableFuture[]::new);
+		return CompletableFuture.allOf(futures);
+	}
 
 	public List<Attraction> getNearByAttractions(VisitedLocation visitedLocation) {
-		List<Attraction> nearbyAttractions = new ArrayList<>();
-		for(Attraction attraction : gpsUtil.getAttractions()) {
-			if(rewardsService.isWithinAttractionProximity(attraction, visitedLocation.location)) {
-				nearbyAttractions.add(attraction);
-			}
+		return rewardsService.getAttractionsWithinProximity(visitedLocation.location);
+	}
+	
+	/**
+	 * The k attractions closest to the visited location, however far away they are, nearest first.
+	 * Their reward points are fetched in parallel and left empty if RewardCentral misses the lookup budget.
+	 */
+	public List<NearbyAttraction> getClosestAttractions(VisitedLocation visitedLocation, int k) {
+		return getClosestAttractionsAsync(visitedLocation, k).join();
+	}
+	
+	/**
+	 * Same as getClosestAttractions without waiting for the reward points, the future completes when they
+	 * are all fetched or the lookup budget elapses, whichever comes first.
+	 */
+	public CompletableFuture<List<NearbyAttraction>> getClosestAttractionsAsync(VisitedLocation visitedLocation, int k) {
+		List<Attraction> attractions = rewardsService.getAttractionIndex().nearest(visitedLocation.location, k);
+		List<CompletableFuture<Integer>> rewardPoints = attractions.stream()
+				.map(attraction -> rewardsService.getRewardPointsAsync(attraction, visitedLocation.userId))
+				.collect(Collectors.toList());
+		return CompletableFuture.allOf(rewardPoints.toArray(new CompletableFuture<?>[0]))
+				.orTimeout(rewardPointsLookupBudget, TimeUnit.MILLISECONDS)
+				.handle((ignored, e) -> {
+					if(e != null) {
+						logger.debug("Reward points lookup incomplete: " + e);
+					}
+					List<NearbyAttraction> closestAttractions = new ArrayList<>(attractions.size());
+					for(int i = 0; i < attractions.size(); i++) {
+						Attraction attraction = attractions.get(i);
+						CompletableFuture<Integer> points = rewardPoints.get(i);
+						closestAttractions.add(new NearbyAttraction(attraction, visitedLocation.location,
+								rewardsService.getDistance(attraction, visitedLocation.location),
+								points.isDone() && !points.isCompletedExceptionally() ? points.join() : null));
+					}
+					return closestAttractions;
+				});
+	}
+	
+	public RewardsPipeline getRewardsPipeline() {
+		return rewardsPipeline;
+	}
+	
+	public void refreshAttractions() {
+		rewardsService.refreshAttractions();
+	}
+	
+	/**
+	 * Stops tracking and the tracking pool, then drains the rewards pipeline if the service made it.
+	 */
+	@Override
+	public void close() {
+		tracker.stopTracking();
+		trackingExecutor.shutdownNow();
+		if(ownsRewardsPipeline) {
+			rewardsPipeline.close();
+		}
+	}
+	
+	private TripDeals priceTrip(TripDealsKey key) {
+		return new TripDeals(key, pricingClient.getPrice(tripPricerApiKey, key.userId,
+				key.numberOfAdults, key.numberOfChildren, key.tripDuration, key.rewardPoints));
+	}
+	
+	private void addVisitedLocation(User user, VisitedLocation visitedLocation) {
+		user.addToVisitedLocations(visitedLocation);
+		latestLocations.put(user.getUserId(), visitedLocation.location);
+	}
+	
+	private void trackLatestLocation(User user) {
+		VisitedLocation lastVisitedLocation = user.getLastVisitedLocation();
+		if(lastVisitedLocation != null) {
+			latestLocations.put(user.getUserId(), lastVisitedLocation.location);
 		}
-		
-		return nearbyAttractions;
 	}
 	
 	private void addShutDownHook() {
 		Runtime.getRuntime().addShutdownHook(new Thread() { 
 		      public void run() {
-		        tracker.stopTracking();
+		        close();
 		      } 
 		    }); 
 	}
@@ -115,42 +360,127 @@ public class TourGuideService {
 	 * 
 	 **********************************************************************************/
 	private static final String tripPricerApiKey = "test-server-api-key";
-	// Database connection will be used for external users, but for testing purposes internal users are provided and stored in memory
-	private final Map<String, User> internalUserMap = new HashMap<>();
+	private static final int DEFAULT_TRACKING_POOL_SIZE = 100;
+	private static final int TRIP_DEALS_CACHE_SIZE = 100_000;
+	private static final long TRIP_DEALS_TIME_TO_LIVE_MINUTES = 10;
+	// upper bound on how long a nearby attractions request waits for RewardCentral
+	private static final long rewardPointsLookupBudget = 1500;
+	private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+	// fewer users per partition aren't worth a task of their own
+	private static final int MIN_USERS_PER_PARTITION = 1000;
+	
+	/**
+	 * Generates the internal users once, on the calling thread and the common pool.
+	 */
+	private CompletableFuture<Void> populateInternalUsers() {
+		if(internalUsersStarted.compareAndSet(false, true)) {
+			try {
+				initializeInternalUsers();
+				internalUsersReady.complete(null);
+			} catch (RuntimeException e) {
+				internalUsersReady.completeExceptionally(e);
+			}
+		}
+		return internalUsersReady;
+	}
+	
+	/**
+	 * Users are generated in partitions of consecutive numbers, in parallel, each partition drawing from
+	 * its own SplittableRandom so no random state is shared or allocated per value.
+	 */
 	private void initializeInternalUsers() {
-		IntStream.range(0, InternalTestHelper.getInternalUserNumber()).forEach(i -> {
-			String userName = "internalUser" + i;
-			String phone = "000";
-			String email = userName + "@tourGuide.com";
-			User user = new User(UUID.randomUUID(), userName, phone, email);
-			generateUserLocationHistory(user);
-			
-			internalUserMap.put(userName, user);
+		long start = System.nanoTime();
+		int userCount = InternalTestHelper.getInternalUserNumber();
+		int partitionCount = Math.max(1, Math.min(userCount / MIN_USERS_PER_PARTITION, 4 * Runtime.getRuntime().availableProcessors()));
+		SplittableRandom random = new SplittableRandom();
+		SplittableRandom[] partitionRandoms = new SplittableRandom[partitionCount];
+		for(int i = 0; i < partitionCount; i++) {
+			partitionRandoms[i] = random.split();
+		}
+		long now = System.currentTimeMillis();
+		IntStream.range(0, partitionCount).parallel().forEach(partition -> {
+			SplittableRandom partitionRandom = partitionRandoms[partition];
+			int from = (int) ((long) userCount * partition / partitionCount);
+			int to = (int) ((long) userCount * (partition + 1) / partitionCount);
+			for(int i = from; i < to; i++) {
+				String userName = "internalUser" + i;
+				User user = new User(generateRandomUuid(partitionRandom), userName, "000", userName + "@tourGuide.com");
+				generateUserLocationHistory(user, partitionRandom, now);
+				userRepository.putIfAbsent(user);
+			}
 		});
-		logger.debug("Created " + InternalTestHelper.getInternalUserNumber() + " internal test users.");
+		logger.debug("Created " + userCount + " internal test users in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
 	}
 	
-	private void generateUserLocationHistory(User user) {
-		IntStream.range(0, 3).forEach(i-> {
-			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(generateRandomLatitude(), generateRandomLongitude()), getRandomTime()));
-		});
+	private void generateUserLocationHistory(User user, SplittableRandom random, long now) {
+		for(int i = 0; i < 3; i++) {
+			addVisitedLocation(user, new VisitedLocation(user.getUserId(), new Location(generateRandomLatitude(random), generateRandomLongitude(random)), getRandomTime(random, now)));
+		}
+	}
+	
+	private static UUID generateRandomUuid(SplittableRandom random) {
+		// a version 4 UUID like UUID.randomUUID(), without going through SecureRandom
+		long mostSignificantBits = random.nextLong() & ~0xf000L | 0x4000L;
+		long leastSignificantBits = random.nextLong() & ~(0xcL << 60) | 0x8L << 60;
+		return new UUID(mostSignificantBits, leastSignificantBits);
 	}
 	
-	private double generateRandomLongitude() {
-		double leftLimit = -180;
-	    double rightLimit = 180;
-	    return leftLimit + new Random().nextDouble() * (rightLimit - leftLimit);
+	private static double generateRandomLongitude(SplittableRandom random) {
+		return random.nextDouble(-180, 180);
 	}
 	
-	private double generateRandomLatitude() {
-		double leftLimit = -85.05112878;
-	    double rightLimit = 85.05112878;
-	    return leftLimit + new Random().nextDouble() * (rightLimit - leftLimit);
+	private static double generateRandomLatitude(SplittableRandom random) {
+		return random.nextDouble(-85.05112878, 85.05112878);
 	}
 	
-	private Date getRandomTime() {
-		LocalDateTime localDateTime = LocalDateTime.now().minusDays(new Random().nextInt(30));
-	    return Date.from(localDateTime.toInstant(ZoneOffset.UTC));
+	private static Date getRandomTime(SplittableRandom random, long now) {
+		return new Date(now - random.nextInt(30) * DAY_MILLIS);
+	}
+	
+	private static final class TripDeals {
+		final TripDealsKey key;
+		final List<Provider> providers;
+		
+		TripDeals(TripDealsKey key, List<Provider> providers) {
+			this.key = key;
+			this.providers = providers;
+		}
+	}
+	
+	private static final class TripDealsKey {
+		final UUID userId;
+		final int numberOfAdults;
+		final int numberOfChildren;
+		final int tripDuration;
+		final int rewardPoints;
+		
+		TripDealsKey(UUID userId, int numberOfAdults, int numberOfChildren, int tripDuration, int rewardPoints) {
+			this.userId = userId;
+			this.numberOfAdults = numberOfAdults;
+			this.numberOfChildren = numberOfChildren;
+			this.tripDuration = tripDuration;
+			this.rewardPoints = rewardPoints;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(this == o) {
+				return true;
+			}
+			if(!(o instanceof TripDealsKey)) {
+				return false;
+			}
+			TripDealsKey other = (TripDealsKey) o;
+			return userId.equals(other.userId) && numberOfAdults == other.numberOfAdults
+					&& numberOfChildren == other.numberOfChildren && tripDuration == other.tripDuration
+					&& rewardPoints == other.rewardPoints;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(userId, numberOfAdults, numberOfChildren, tripDuration, rewardPoints);
+		}
 	}
 	
 }
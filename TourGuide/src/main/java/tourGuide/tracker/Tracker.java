@@ -1,30 +1,96 @@
 package tourGuide.tracker;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
 import tourGuide.service.TourGuideService;
 import tourGuide.model.User;
 
+/**
+ * Polls every user's location once per polling interval, spread evenly over the interval.
+ * The interval is cut into slots of a hashed timing wheel: each user is hashed to a slot and tracked
+ * when the wheel reaches it, so gpsUtil sees a steady trickle instead of one burst per interval.
+ * Users who didn't move since their last poll are polled less and less often, up to MAX_BACKOFF intervals apart.
+ * No more than maxInFlight users are tracked at once; past that, due users are deferred to a backlog served first
+ * on the next slots, and the deferrals, late polls and late slots are reported at the end of each turn of the wheel.
+ */
 public class Tracker extends Thread {
 	private Logger logger = LoggerFactory.getLogger(Tracker.class);
 	private static final long trackingPollingInterval = TimeUnit.MINUTES.toSeconds(5);
+	private static final int DEFAULT_SLOT_COUNT = 300;
+	private static final int DEFAULT_MAX_IN_FLIGHT = 10_000;
+	// a user who keeps still is polled at most every MAX_BACKOFF intervals
+	private static final int MAX_BACKOFF = 4;
+	// about 100 yards, below gpsUtil's precision for a user who didn't move
+	private static final double STATIONARY_DEGREES = 0.001;
 	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
 	private final TourGuideService tourGuideService;
-	private boolean stop = false;
+	private final int slotCount;
+	private final long slotNanos;
+	private final int maxInFlight;
+	private final List<Queue<Poll>> wheel;
+	// due polls deferred for lack of capacity, served before the next slots so they don't starve
+	private final Queue<Poll> backlog = new ConcurrentLinkedQueue<>();
+	private final Set<UUID> scheduledUsers = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final LongAdder polls = new LongAdder();
+	private final LongAdder deferredPolls = new LongAdder();
+	private final LongAdder latePolls = new LongAdder();
+	private final LongAdder lateTicks = new LongAdder();
+	private volatile long tick;
+	private long turnStartNanos;
+	private long turnStartPolls;
+	private volatile long lastTurnNanos;
+	private volatile long lastTurnPolls;
+	private volatile boolean stop = false;
 
 	public Tracker(TourGuideService tourGuideService) {
+		this(tourGuideService, true);
+	}
+
+	/**
+	 * @param start false for a tracker that never polls, when tracking is driven from elsewhere
+	 */
+	public Tracker(TourGuideService tourGuideService, boolean start) {
+		this(tourGuideService, trackingPollingInterval, TimeUnit.SECONDS, DEFAULT_SLOT_COUNT, DEFAULT_MAX_IN_FLIGHT, start);
+	}
+
+	public Tracker(TourGuideService tourGuideService, long pollingInterval, TimeUnit unit, int slotCount, int maxInFlight) {
+		this(tourGuideService, pollingInterval, unit, slotCount, maxInFlight, true);
+	}
+
+	private Tracker(TourGuideService tourGuideService, long pollingInterval, TimeUnit unit, int slotCount, int maxInFlight,
+			boolean start) {
 		this.tourGuideService = tourGuideService;
-		
-		executorService.submit(this);
+		this.slotCount = slotCount;
+		this.slotNanos = unit.toNanos(pollingInterval) / slotCount;
+		this.maxInFlight = maxInFlight;
+		this.wheel = new ArrayList<>(slotCount);
+		for(int i = 0; i < slotCount; i++) {
+			wheel.add(new ConcurrentLinkedQueue<>());
+		}
+
+		if(start) {
+			executorService.submit(this);
+		}
 	}
-	
+
 	/**
 	 * Assures to shut down the Tracker thread
 	 */
@@ -32,30 +98,201 @@ public class Tracker extends Thread {
 		stop = true;
 		executorService.shutdownNow();
 	}
-	
+
 	@Override
 	public void run() {
-		StopWatch stopWatch = new StopWatch();
+		long start = System.nanoTime();
 		while(true) {
 			if(Thread.currentThread().isInterrupted() || stop) {
 				logger.debug("Tracker stopping");
 				break;
 			}
-			
-			List<User> users = tourGuideService.getAllUsers();
-			logger.debug("Begin Tracker. Tracking " + users.size() + " users.");
-			stopWatch.start();
-			users.forEach(u -> tourGuideService.trackUserLocation(u));
-			stopWatch.stop();
-			logger.debug("Tracker Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds."); 
-			stopWatch.reset();
+
+			long currentTick = tick;
 			try {
-				logger.debug("Tracker sleeping");
-				TimeUnit.SECONDS.sleep(trackingPollingInterval);
-			} catch (InterruptedException e) {
+				if(currentTick % slotCount == 0) {
+					startTurn(currentTick);
+				}
+				pollDueUsers(currentTick);
+			} catch (RuntimeException e) {
+				// whatever went wrong, the wheel keeps turning so a failing upstream doesn't stop tracking for good
+				logger.error("Tracker slot " + currentTick + " failed", e);
+			}
+			tick = currentTick + 1;
+
+			long wait = start + (currentTick + 1) * slotNanos - System.nanoTime();
+			if(wait > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(wait);
+				} catch (InterruptedException e) {
+					break;
+				}
+			} else if(-wait > slotNanos) {
+				// the wheel itself fell behind the clock, catch up without sleeping
+				lateTicks.increment();
+			}
+		}
+	}
+
+	/**
+	 * Duration of the last full turn of the wheel, a polling interval unless the wheel fell behind. 0 before the first turn ends.
+	 */
+	public long getLastTurnNanos() {
+		return lastTurnNanos;
+	}
+
+	/**
+	 * Users polled during the last full turn of the wheel.
+	 */
+	public long getLastTurnPollCount() {
+		return lastTurnPolls;
+	}
+
+	/**
+	 * Number of users the wheel polls.
+	 */
+	public int getTrackedUserCount() {
+		return scheduledUsers.size();
+	}
+
+	/**
+	 * Due polls waiting for capacity.
+	 */
+	public int getBacklogSize() {
+		return backlog.size();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public long getPollCount() {
+		return polls.sum();
+	}
+
+	/**
+	 * Polls deferred to the backlog because maxInFlight users were already being tracked.
+	 */
+	public long getDeferredPollCount() {
+		return deferredPolls.sum();
+	}
+
+	/**
+	 * Polls that completed after the user's next poll was already due.
+	 */
+	public long getLatePollCount() {
+		return latePolls.sum();
+	}
+
+	/**
+	 * Slots the wheel reached more than a slot late.
+	 */
+	public long getLateTickCount() {
+		return lateTicks.sum();
+	}
+
+	private void startTurn(long currentTick) {
+		long now = System.nanoTime();
+		if(currentTick > 0) {
+			lastTurnNanos = now - turnStartNanos;
+			lastTurnPolls = polls.sum() - turnStartPolls;
+			logger.debug("Tracker turn done in " + TimeUnit.NANOSECONDS.toSeconds(lastTurnNanos) + " seconds. Tracking "
+					+ scheduledUsers.size() + " users, " + lastTurnPolls + " polls this turn.");
+			if(deferredPolls.sum() > 0 || latePolls.sum() > 0 || lateTicks.sum() > 0) {
+				logger.warn("Tracker falling behind: " + deferredPolls.sum() + " deferred polls, " + latePolls.sum() + " late polls, "
+						+ lateTicks.sum() + " late slots so far.");
+			}
+		}
+		turnStartNanos = now;
+		turnStartPolls = polls.sum();
+		try {
+			tourGuideService.refreshAttractions();
+		} catch (RuntimeException e) {
+			// the attractions known so far are kept until gpsUtil answers again
+			logger.warn("Refreshing the attractions failed, keeping the previous ones: " + e);
+		}
+		// users added since the last turn join the wheel in their hashed slot
+		for(User user : tourGuideService.getAllUsers()) {
+			if(scheduledUsers.add(user.getUserId())) {
+				schedule(new Poll(user, currentTick + Math.floorMod(user.getUserId().hashCode(), slotCount), slotCount));
+			}
+		}
+	}
+
+	private void pollDueUsers(long currentTick) {
+		for(Poll poll = backlog.peek(); poll != null && inFlight.get() < maxInFlight; poll = backlog.peek()) {
+			track(backlog.poll(), currentTick);
+		}
+		Queue<Poll> slot = wheel.get((int) (currentTick % slotCount));
+		// only what the slot holds now, polls re-added to it belong to a later turn
+		for(int remaining = slot.size(); remaining > 0; remaining--) {
+			Poll poll = slot.poll();
+			if(poll == null) {
 				break;
 			}
+			if(poll.dueTick > currentTick) {
+				slot.add(poll);
+			} else if(inFlight.get() >= maxInFlight) {
+				deferredPolls.increment();
+				backlog.add(poll);
+			} else {
+				track(poll, currentTick);
+			}
+		}
+	}
+
+	private void track(Poll poll, long currentTick) {
+		VisitedLocation previous = poll.user.getLastVisitedLocation();
+		inFlight.incrementAndGet();
+		polls.increment();
+		CompletableFuture<VisitedLocation> tracking;
+		try {
+			tracking = tourGuideService.trackUserLocationAsync(poll.user);
+		} catch (RuntimeException e) {
+			// e.g. the tracking executor rejected the user, who is polled again like after any failure
+			tracking = CompletableFuture.failedFuture(e);
+		}
+		tracking.whenComplete((visitedLocation, e) -> {
+			inFlight.decrementAndGet();
+			if(e != null) {
+				logger.debug("Tracking " + poll.user.getUserName() + " failed: " + e);
+				poll.period = slotCount;
+			} else if(previous != null && isStationary(previous.location, visitedLocation.location)) {
+				poll.period = Math.min(poll.period * 2, slotCount * MAX_BACKOFF);
+			} else {
+				poll.period = slotCount;
+			}
+			poll.dueTick = currentTick + poll.period;
+			long nextTick = tick + 1;
+			if(poll.dueTick < nextTick) {
+				latePolls.increment();
+				poll.dueTick = nextTick;
+			}
+			if(!stop) {
+				schedule(poll);
+			}
+		});
+	}
+
+	private void schedule(Poll poll) {
+		wheel.get((int) (poll.dueTick % slotCount)).add(poll);
+	}
+
+	private static boolean isStationary(Location previous, Location current) {
+		return Math.abs(previous.latitude - current.latitude) < STATIONARY_DEGREES
+				&& Math.abs(previous.longitude - current.longitude) < STATIONARY_DEGREES;
+	}
+
+	private static final class Poll {
+		final User user;
+		// ticks until the next poll, grows while the user keeps still
+		int period;
+		long dueTick;
+
+		Poll(User user, long dueTick, int period) {
+			this.user = user;
+			this.dueTick = dueTick;
+			this.period = period;
 		}
-		
 	}
 }
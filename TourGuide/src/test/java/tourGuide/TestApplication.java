@@ -0,0 +1,27 @@
+package tourGuide;
+
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TestApplication {
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	public void contextLoadsAndBindsTheTourGuideMeters() {
+		assertNotNull(meterRegistry.find("tourGuide.users").gauge());
+		assertNotNull(meterRegistry.find("tourGuide.tracker.polls").functionCounter());
+		assertNotNull(meterRegistry.find("cache.gets").tags("cache", "rewardPoints", "result", "hit").functionCounter());
+	}
+
+}
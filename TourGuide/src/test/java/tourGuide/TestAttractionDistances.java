@@ -0,0 +1,95 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import rewardCentral.RewardCentral;
+import tourGuide.location.AttractionDistances;
+import tourGuide.service.RewardsService;
+
+public class TestAttractionDistances {
+
+	@Test
+	public void distancesMatchGetDistance() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionDistances attractionDistances = new AttractionDistances(attractions);
+		double[] distances = new double[attractions.size()];
+		Random random = new Random(42);
+		
+		for(int i = 0; i < 10000; i++) {
+			Location location = new Location(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+			attractionDistances.distancesFrom(location, distances);
+			for(int j = 0; j < attractions.size(); j++) {
+				double expected = rewardsService.getDistance(attractions.get(j), location);
+				assertEquals(expected, distances[j], AttractionDistances.DISTANCE_TOLERANCE_MILES);
+				assertEquals(expected, attractionDistances.distance(j, location), AttractionDistances.DISTANCE_TOLERANCE_MILES);
+			}
+		}
+		for(int j = 0; j < attractions.size(); j++) {
+			assertEquals(0, attractionDistances.distance(j, attractions.get(j)), AttractionDistances.DISTANCE_TOLERANCE_MILES);
+		}
+	}
+	
+	@Test
+	public void withinRadiusMatchesGetDistance() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionDistances attractionDistances = new AttractionDistances(attractions);
+		int[] nearby = new int[attractions.size()];
+		Random random = new Random(42);
+		
+		for(int i = 0; i < 10000; i++) {
+			Location location = new Location(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+			double miles = random.nextDouble() * 3000;
+			Set<Integer> expected = new TreeSet<>();
+			for(int j = 0; j < attractions.size(); j++) {
+				double distance = rewardsService.getDistance(attractions.get(j), location);
+				// pairs closer to the radius than the tolerance may fall either side
+				if(distance <= miles - AttractionDistances.DISTANCE_TOLERANCE_MILES) {
+					expected.add(j);
+				} else if(distance <= miles + AttractionDistances.DISTANCE_TOLERANCE_MILES) {
+					expected = null;
+					break;
+				}
+			}
+			if(expected == null) {
+				continue;
+			}
+			int count = attractionDistances.withinRadius(location, new AttractionDistances.Radius(miles), nearby);
+			Set<Integer> actual = Arrays.stream(nearby, 0, count).boxed().collect(Collectors.toCollection(TreeSet::new));
+			assertEquals(expected, actual);
+		}
+	}
+	
+	@Test
+	public void withinRadiusIncludesAttractionItself() {
+		GpsUtil gpsUtil = new GpsUtil();
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionDistances attractionDistances = new AttractionDistances(attractions);
+		int[] nearby = new int[attractions.size()];
+		
+		for(int j = 0; j < attractions.size(); j++) {
+			int index = j;
+			int count = attractionDistances.withinRadius(attractions.get(j), new AttractionDistances.Radius(0), nearby);
+			assertTrue(Arrays.stream(nearby, 0, count).anyMatch(i -> i == index));
+		}
+		assertEquals(attractions.size(), attractionDistances.withinRadius(attractions.get(0), new AttractionDistances.Radius(Integer.MAX_VALUE), nearby));
+		assertEquals(0, attractionDistances.withinRadius(attractions.get(0), new AttractionDistances.Radius(-1), nearby));
+	}
+	
+}
@@ -0,0 +1,90 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import rewardCentral.RewardCentral;
+import tourGuide.location.AttractionIndex;
+import tourGuide.service.RewardsService;
+
+public class TestAttractionIndex {
+
+	@Test
+	public void withinRadiusMatchesFullScan() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionIndex attractionIndex = new AttractionIndex(attractions);
+		Random random = new Random(42);
+
+		for(int i = 0; i < 1000; i++) {
+			Location location = new Location(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+			double miles = random.nextDouble() * 3000;
+			Set<String> expected = attractions.stream()
+					.filter(a -> rewardsService.getDistance(a, location) <= miles)
+					.map(a -> a.attractionName)
+					.collect(Collectors.toSet());
+			Set<String> actual = attractionIndex.withinRadius(location, miles).stream()
+					.map(a -> a.attractionName)
+					.collect(Collectors.toSet());
+			assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void withinRadiusIncludesAttractionItself() {
+		GpsUtil gpsUtil = new GpsUtil();
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionIndex attractionIndex = new AttractionIndex(attractions);
+
+		for(Attraction attraction : attractions) {
+			assertTrue(attractionIndex.withinRadius(attraction, 0).contains(attraction));
+		}
+		assertEquals(attractions.size(), attractionIndex.withinRadius(attractions.get(0), Integer.MAX_VALUE).size());
+	}
+
+	@Test
+	public void nearestMatchesSortedScan() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionIndex attractionIndex = new AttractionIndex(attractions);
+		Random random = new Random(42);
+
+		for(int i = 0; i < 1000; i++) {
+			Location location = new Location(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+			List<Attraction> expected = new ArrayList<>(attractions);
+			expected.sort(Comparator.comparingDouble(a -> rewardsService.getDistance(a, location)));
+
+			List<Attraction> actual = attractionIndex.nearest(location, 5);
+			assertEquals(expected.subList(0, 5), actual);
+		}
+		assertEquals(attractions.size(), attractionIndex.nearest(attractions.get(0), attractions.size() + 1).size());
+	}
+
+	@Test
+	public void hasSameAttractions() {
+		GpsUtil gpsUtil = new GpsUtil();
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AttractionIndex attractionIndex = new AttractionIndex(attractions);
+
+		assertTrue(attractionIndex.hasSameAttractions(gpsUtil.getAttractions()));
+		assertFalse(attractionIndex.hasSameAttractions(attractions.subList(1, attractions.size())));
+		assertEquals(new HashSet<>(attractions), new HashSet<>(attractionIndex.getAttractions()));
+	}
+
+}
@@ -0,0 +1,114 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.client.BatchGpsClient;
+import tourGuide.client.BatchingGpsClient;
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.Latency;
+
+public class TestBatchingGpsClient {
+
+	@Test
+	public void handsEachCallerItsOwnLocation() {
+		FakeGpsClient fakeGpsClient = new FakeGpsClient(42, Latency.none());
+		// a delay long enough for the first lookups to fill their batches even while the JVM is cold
+		BatchingGpsClient batchingGpsClient = new BatchingGpsClient(fakeGpsClient, 10, 200, TimeUnit.MILLISECONDS);
+		// same seed, so the same first location for each user
+		FakeGpsClient otherGpsClient = new FakeGpsClient(42, Latency.none());
+
+		List<UUID> userIds = new ArrayList<>();
+		List<CompletableFuture<VisitedLocation>> locations = new ArrayList<>();
+		for(int i = 0; i < 25; i++) {
+			UUID userId = UUID.randomUUID();
+			userIds.add(userId);
+			locations.add(batchingGpsClient.getUserLocationAsync(userId));
+		}
+
+		for(int i = 0; i < userIds.size(); i++) {
+			VisitedLocation visitedLocation = locations.get(i).join();
+			assertEquals(userIds.get(i), visitedLocation.userId);
+			assertEquals(otherGpsClient.getUserLocation(userIds.get(i)).location.latitude, visitedLocation.location.latitude, 0);
+		}
+		// two full batches, and the last five sent once the delay elapsed
+		assertEquals(3, batchingGpsClient.getBatchCount());
+		assertEquals(25, batchingGpsClient.getLookupCount());
+		batchingGpsClient.close();
+	}
+
+	@Test
+	public void pays50msPerBatchInsteadOfPerLookup() throws InterruptedException {
+		FakeGpsClient fakeGpsClient = new FakeGpsClient(42, Latency.fixed(50));
+		BatchingGpsClient batchingGpsClient = new BatchingGpsClient(fakeGpsClient, 100, 10, TimeUnit.MILLISECONDS);
+		ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+
+		long start = System.nanoTime();
+		for(int i = 0; i < 1000; i++) {
+			callers.execute(() -> batchingGpsClient.getUserLocation(UUID.randomUUID()));
+		}
+		callers.shutdown();
+		assertTrue(callers.awaitTermination(10, TimeUnit.SECONDS));
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertEquals(1000, batchingGpsClient.getLookupCount());
+		// at least 10 full batches, a few more if callers were slower than the delay
+		assertTrue(batchingGpsClient.getBatchCount() >= 10 && batchingGpsClient.getBatchCount() < 100);
+		assertTrue("Lookups took " + elapsedMillis + "ms", elapsedMillis < 5000);
+		batchingGpsClient.close();
+	}
+
+	@Test
+	public void failsEveryLookupOfAFailedBatch() {
+		IllegalStateException failure = new IllegalStateException("gpsUtil down");
+		BatchGpsClient failingGpsClient = new BatchGpsClient() {
+			@Override
+			public List<VisitedLocation> getUserLocations(List<UUID> userIds) {
+				throw failure;
+			}
+
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				throw failure;
+			}
+
+			@Override
+			public List<Attraction> getAttractions() {
+				return new ArrayList<>();
+			}
+		};
+		BatchingGpsClient batchingGpsClient = new BatchingGpsClient(failingGpsClient, 2, 5, TimeUnit.MILLISECONDS);
+
+		CompletableFuture<VisitedLocation> first = batchingGpsClient.getUserLocationAsync(UUID.randomUUID());
+		CompletableFuture<VisitedLocation> second = batchingGpsClient.getUserLocationAsync(UUID.randomUUID());
+		for(CompletableFuture<VisitedLocation> location : List.of(first, second)) {
+			try {
+				location.join();
+			} catch (CompletionException e) {
+				assertSame(failure, e.getCause());
+			}
+			assertTrue(location.isCompletedExceptionally());
+		}
+		try {
+			batchingGpsClient.getUserLocation(UUID.randomUUID());
+		} catch (IllegalStateException e) {
+			assertSame(failure, e);
+		}
+		batchingGpsClient.close();
+	}
+
+}
@@ -0,0 +1,104 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import tourGuide.client.CircuitBreaker;
+import tourGuide.client.ConcurrencyLimit;
+import tourGuide.client.GpsClient;
+import tourGuide.client.UpstreamLimits;
+import tourGuide.client.UpstreamPolicy;
+import tourGuide.client.UpstreamResilience;
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakePricingClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+import tourGuide.helper.ExecutionMode;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.model.User;
+import tourGuide.repository.InMemoryUserRepository;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+
+public class TestExecutionMode {
+
+	@Test
+	public void virtualModeRunsOnVirtualThreads() throws Exception {
+		ExecutorService executor = ExecutionMode.VIRTUAL.newExecutor("test-worker", 1);
+		
+		Thread thread = executor.submit(Thread::currentThread).get();
+		executor.shutdownNow();
+		
+		assertTrue(thread.isVirtual());
+		assertTrue(thread.getName().startsWith("test-worker-"));
+	}
+	
+	@Test
+	public void concurrencyLimitIsNeverExceeded() {
+		ConcurrencyLimit limit = new ConcurrencyLimit(10);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		ExecutorService executor = ExecutionMode.VIRTUAL.newExecutor("test-worker", 1);
+		
+		List<CompletableFuture<Integer>> calls = new ArrayList<>();
+		for(int i = 0; i < 1000; i++) {
+			calls.add(CompletableFuture.supplyAsync(() -> limit.call(() -> {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				Latency.fixed(1).pause(new SplittableRandom(42));
+				return inFlight.decrementAndGet();
+			}), executor));
+		}
+		CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).join();
+		executor.shutdownNow();
+		
+		assertEquals(10, maxInFlight.get());
+		assertEquals(0, limit.getInFlight());
+	}
+	
+	@Test
+	public void trackAllUsersOnVirtualThreads() {
+		UpstreamLimits upstreamLimits = new UpstreamLimits(500, 500, 10);
+		UpstreamResilience upstreamResilience = new UpstreamResilience(
+				newUpstreamPolicy("gpsUtil", upstreamLimits.getGps()),
+				newUpstreamPolicy("rewardCentral", upstreamLimits.getRewards()),
+				newUpstreamPolicy("tripPricer", upstreamLimits.getPricing()));
+		GpsClient gpsClient = upstreamResilience.protect(new FakeGpsClient(42, Latency.fixed(50)));
+		RewardsService rewardsService = new RewardsService(gpsClient,
+				upstreamResilience.protect(new FakeRewardClient(42, Latency.fixed(10))), 1, ExecutionMode.VIRTUAL);
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsClient, rewardsService,
+				upstreamResilience.protect(new FakePricingClient(42, Latency.none())), new InMemoryUserRepository(), 1, ExecutionMode.VIRTUAL);
+		
+		List<User> users = new ArrayList<>();
+		for(int i = 0; i < 5000; i++) {
+			users.add(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+		long start = System.nanoTime();
+		tourGuideService.trackAllUsers(users).join();
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		tourGuideService.tracker.stopTracking();
+		
+		for(User user : users) {
+			assertEquals(1, user.getVisitedLocations().size());
+		}
+		// 10 waves of 500 concurrent 50ms calls, a pool of a single platform thread would need over 4 minutes
+		assertTrue("Tracking took " + elapsedMillis + "ms", elapsedMillis < 10_000);
+		assertEquals(0, upstreamResilience.getGps().getFailureCount());
+	}
+	
+	private static UpstreamPolicy newUpstreamPolicy(String upstream, ConcurrencyLimit bulkhead) {
+		return new UpstreamPolicy(upstream, bulkhead, new CircuitBreaker(100, 20, 50, 1, TimeUnit.SECONDS, 1), 5, TimeUnit.SECONDS);
+	}
+	
+}
@@ -0,0 +1,115 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakePricingClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+import tripPricer.Provider;
+
+public class TestFakeClients {
+
+	@Test
+	public void sameSeedSameAnswers() {
+		UUID userId = UUID.randomUUID();
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		FakeGpsClient otherGpsClient = new FakeGpsClient(42, Latency.none());
+		FakeRewardClient rewardClient = new FakeRewardClient(42, Latency.none());
+		FakePricingClient pricingClient = new FakePricingClient(42, Latency.none());
+		
+		VisitedLocation visitedLocation = gpsClient.getUserLocation(userId);
+		VisitedLocation otherVisitedLocation = otherGpsClient.getUserLocation(userId);
+		assertEquals(visitedLocation.location.latitude, otherVisitedLocation.location.latitude, 0);
+		assertEquals(visitedLocation.location.longitude, otherVisitedLocation.location.longitude, 0);
+		
+		Attraction attraction = gpsClient.getAttractions().get(0);
+		assertEquals(attraction.attractionId, gpsClient.getAttractions().get(0).attractionId);
+		int points = rewardClient.getAttractionRewardPoints(attraction.attractionId, userId);
+		assertEquals(points, new FakeRewardClient(42, Latency.none()).getAttractionRewardPoints(attraction.attractionId, userId));
+		assertTrue(points >= 1 && points < 1000);
+		
+		List<Provider> providers = pricingClient.getPrice("key", userId, 2, 1, 7, 0);
+		List<Provider> otherProviders = new FakePricingClient(42, Latency.none()).getPrice("key", userId, 2, 1, 7, 0);
+		assertEquals(5, providers.size());
+		assertEquals(5, providers.stream().map(p -> p.name).distinct().count());
+		for(int i = 0; i < providers.size(); i++) {
+			assertEquals(providers.get(i).name, otherProviders.get(i).name);
+			assertEquals(providers.get(i).price, otherProviders.get(i).price, 0);
+		}
+	}
+	
+	@Test
+	public void usersMoveBetweenLookups() {
+		UUID userId = UUID.randomUUID();
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		FakeGpsClient otherGpsClient = new FakeGpsClient(42, Latency.none());
+		
+		Set<Double> longitudes = new HashSet<>();
+		for(int i = 0; i < 20; i++) {
+			VisitedLocation visitedLocation = gpsClient.getUserLocation(userId);
+			VisitedLocation otherVisitedLocation = otherGpsClient.getUserLocation(userId);
+			assertEquals(visitedLocation.location.latitude, otherVisitedLocation.location.latitude, 0);
+			assertEquals(visitedLocation.location.longitude, otherVisitedLocation.location.longitude, 0);
+			longitudes.add(visitedLocation.location.longitude);
+		}
+		
+		// home and somewhere else every time
+		assertTrue(longitudes.size() > 10);
+		assertTrue(longitudes.size() < 20);
+	}
+	
+	@Test
+	public void differentSeedsDifferentAnswers() {
+		UUID userId = UUID.randomUUID();
+		Set<Double> latitudes = new Random(1).longs(10).mapToObj(seed -> new FakeGpsClient(seed, Latency.none()))
+				.map(c -> c.getUserLocation(userId).location.latitude)
+				.collect(Collectors.toSet());
+		
+		assertNotEquals(1, latitudes.size());
+	}
+	
+	@Test
+	public void parseLatency() {
+		Random random = new Random(42);
+		
+		assertEquals(0, Latency.parse("none").sampleNanos(random));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(50), Latency.parse("fixed:50").sampleNanos(random));
+		for(int i = 0; i < 1000; i++) {
+			long uniform = Latency.parse("uniform:30-100").sampleNanos(random);
+			assertTrue(uniform >= TimeUnit.MILLISECONDS.toNanos(30) && uniform <= TimeUnit.MILLISECONDS.toNanos(100));
+			long longTail = Latency.parse("longtail:40,1.0,2000").sampleNanos(random);
+			assertTrue(longTail >= 0 && longTail <= TimeUnit.MILLISECONDS.toNanos(2000));
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void parseMalformedLatency() {
+		Latency.parse("uniform:30");
+	}
+	
+	@Test
+	public void fixedLatencyIsObserved() {
+		FakeRewardClient rewardClient = new FakeRewardClient(42, Latency.fixed(20));
+		
+		long start = System.nanoTime();
+		rewardClient.getAttractionRewardPoints(UUID.randomUUID(), UUID.randomUUID());
+		
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+	}
+	
+}
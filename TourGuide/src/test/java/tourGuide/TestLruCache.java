@@ -0,0 +1,166 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import tourGuide.cache.CacheStats;
+import tourGuide.cache.CachingRewardClient;
+import tourGuide.cache.LruCache;
+import tourGuide.client.RewardClient;
+
+public class TestLruCache {
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		LruCache<String, String> cache = new LruCache<>(2, 1, TimeUnit.HOURS);
+		
+		cache.get("a", k -> "A");
+		cache.get("b", k -> "B");
+		cache.get("a", k -> "not loaded");
+		cache.get("c", k -> "C");
+		
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.stats().getEvictionCount());
+		assertEquals("A", cache.get("a", k -> "not loaded"));
+		assertEquals("B reloaded", cache.get("b", k -> "B reloaded"));
+	}
+	
+	@Test
+	public void segmentedCacheStaysWithinItsMaximumSize() {
+		LruCache<Integer, Integer> cache = new LruCache<>(1000, 1, TimeUnit.HOURS);
+		
+		for(int i = 0; i < 10_000; i++) {
+			cache.get(i, k -> k);
+			// key 0 is used all along, it's never the least recently used of its segment
+			cache.get(0, k -> -1);
+		}
+		
+		assertTrue(cache.size() <= 1000);
+		assertEquals(10_000 - cache.size(), cache.stats().getEvictionCount());
+		assertEquals(Integer.valueOf(0), cache.get(0, k -> -1));
+	}
+	
+	@Test
+	public void loadingEntriesAreNeverEvicted() throws Exception {
+		LruCache<String, Integer> cache = new LruCache<>(1, 1, TimeUnit.HOURS);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loadStarted = new CountDownLatch(1);
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		
+		Future<Integer> first = executorService.submit(() -> cache.get("a", k -> {
+			loadStarted.countDown();
+			sleep(200);
+			return loads.incrementAndGet();
+		}));
+		loadStarted.await();
+		// overflows the cache while "a" is loading
+		cache.get("b", k -> 0);
+		Future<Integer> second = executorService.submit(() -> cache.get("a", k -> loads.incrementAndGet()));
+		
+		assertEquals(Integer.valueOf(1), first.get(10, TimeUnit.SECONDS));
+		assertEquals(Integer.valueOf(1), second.get(10, TimeUnit.SECONDS));
+		assertEquals(1, loads.get());
+		executorService.shutdown();
+	}
+	
+	@Test
+	public void reloadsExpiredEntries() throws InterruptedException {
+		LruCache<String, Integer> cache = new LruCache<>(10, 10, TimeUnit.MILLISECONDS);
+		AtomicInteger loads = new AtomicInteger();
+		
+		cache.get("a", k -> loads.incrementAndGet());
+		TimeUnit.MILLISECONDS.sleep(20);
+		cache.get("a", k -> loads.incrementAndGet());
+		
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	public void concurrentMissesShareOneLoad() throws InterruptedException {
+		LruCache<String, Integer> cache = new LruCache<>(10, 1, TimeUnit.HOURS);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(50);
+		ExecutorService executorService = Executors.newFixedThreadPool(50);
+		
+		for(int i = 0; i < 50; i++) {
+			executorService.execute(() -> {
+				cache.get("a", k -> {
+					sleep(100);
+					return loads.incrementAndGet();
+				});
+				done.countDown();
+			});
+		}
+		done.await(10, TimeUnit.SECONDS);
+		executorService.shutdown();
+		
+		CacheStats stats = cache.stats();
+		assertEquals(1, loads.get());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(49, stats.getHitCount());
+		assertTrue(stats.getTotalLoadTime() >= TimeUnit.MILLISECONDS.toNanos(100));
+	}
+	
+	@Test
+	public void failedLoadLetsWaitingCallersGoWhateverTheFailure() throws InterruptedException {
+		LruCache<String, Integer> cache = new LruCache<>(10, 1, TimeUnit.HOURS);
+		AssertionError failure = new AssertionError("loader broken");
+		CountDownLatch loading = new CountDownLatch(1);
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		
+		executorService.submit(() -> cache.get("a", k -> {
+			loading.countDown();
+			sleep(100);
+			throw failure;
+		}));
+		loading.await();
+		try {
+			cache.get("a", k -> 0);
+			fail();
+		} catch (AssertionError e) {
+			assertSame(failure, e);
+		}
+		executorService.shutdown();
+		
+		assertEquals(0, cache.size());
+		assertEquals(Integer.valueOf(1), cache.get("a", k -> 1));
+		assertEquals(1, cache.stats().getLoadFailureCount());
+	}
+	
+	@Test
+	public void cachingRewardClientAsksOncePerPair() {
+		AtomicInteger calls = new AtomicInteger();
+		RewardClient rewardClient = (attractionId, userId) -> calls.incrementAndGet();
+		CachingRewardClient cachingRewardClient = new CachingRewardClient(rewardClient, new LruCache<>(100, 1, TimeUnit.HOURS));
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+		
+		int points = cachingRewardClient.getAttractionRewardPoints(attractionId, userId);
+		
+		assertEquals(points, cachingRewardClient.getAttractionRewardPoints(attractionId, userId));
+		assertEquals(1, calls.get());
+		cachingRewardClient.getAttractionRewardPoints(attractionId, UUID.randomUUID());
+		assertEquals(2, calls.get());
+	}
+	
+	private static void sleep(long millis) {
+		try {
+			TimeUnit.MILLISECONDS.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+}
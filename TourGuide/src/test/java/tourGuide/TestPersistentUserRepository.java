@@ -0,0 +1,168 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.model.User;
+import tourGuide.model.UserReward;
+import tourGuide.repository.PersistentUserRepository;
+
+public class TestPersistentUserRepository {
+
+	private Path directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("users");
+	}
+
+	@After
+	public void deleteDirectory() throws IOException {
+		try(Stream<Path> paths = Files.walk(directory)) {
+			for(Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Test
+	public void recoversUsersFromTheLog() throws IOException {
+		PersistentUserRepository repository = new PersistentUserRepository(directory);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		visit(user, 1, 1);
+		repository.putIfAbsent(user);
+		visit(user, 2, 2);
+		visit(user, 3, 3);
+		Attraction attraction = new Attraction("Disneyland", "Anaheim", "CA", 33.817595, -117.922008);
+		user.addUserReward(new UserReward(user.getLastVisitedLocation(), attraction, 250));
+		user.advanceRewardsWatermark(3);
+		repository.close();
+
+		PersistentUserRepository recovered = new PersistentUserRepository(directory);
+		try {
+			assertSameUser(user, recovered.findByUserName("jon"));
+			assertEquals(1, recovered.count());
+		} finally {
+			recovered.close();
+		}
+	}
+
+	@Test
+	public void recoversUsersFromSnapshotThenLog() throws IOException {
+		PersistentUserRepository repository = new PersistentUserRepository(directory);
+		User[] users = new User[100];
+		for(int i = 0; i < users.length; i++) {
+			users[i] = new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com", 5);
+			repository.putIfAbsent(users[i]);
+			visit(users[i], i, i);
+		}
+		repository.snapshot();
+		for(User user : users) {
+			// more than the history keeps, so the oldest logged ones must not come back
+			for(int i = 0; i < 8; i++) {
+				visit(user, -i, -i);
+			}
+		}
+		repository.close();
+
+		try(Stream<Path> paths = Files.list(directory)) {
+			// the log from before the snapshot is gone
+			assertEquals(2, paths.count());
+		}
+		PersistentUserRepository recovered = new PersistentUserRepository(directory);
+		try {
+			assertEquals(users.length, recovered.count());
+			for(User user : users) {
+				assertSameUser(user, recovered.findByUserName(user.getUserName()));
+			}
+		} finally {
+			recovered.close();
+		}
+	}
+
+	@Test
+	public void ignoresATornRecordAtTheEndOfTheLog() throws IOException {
+		PersistentUserRepository repository = new PersistentUserRepository(directory);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		repository.putIfAbsent(user);
+		visit(user, 1, 1);
+		repository.close();
+		try(Stream<Path> paths = Files.list(directory)) {
+			Path log = paths.filter(path -> path.getFileName().toString().startsWith("log-")).findFirst().get();
+			// a record cut short: a length of 40 bytes followed by a checksum and only 3 bytes
+			Files.write(log, new byte[] { 0, 0, 0, 40, 1, 2, 3, 4, 2, 0, 0 }, StandardOpenOption.APPEND);
+		}
+
+		PersistentUserRepository recovered = new PersistentUserRepository(directory);
+		try {
+			assertSameUser(user, recovered.findByUserName("jon"));
+			// and keeps logging after a restart
+			User recoveredUser = recovered.findByUserName("jon");
+			visit(recoveredUser, 2, 2);
+			recovered.flush();
+			assertTrue(recovered.getWrittenRecordCount() > 0);
+		} finally {
+			recovered.close();
+		}
+
+		PersistentUserRepository restarted = new PersistentUserRepository(directory);
+		try {
+			assertEquals(2, restarted.findByUserName("jon").getVisitedLocations().size());
+		} finally {
+			restarted.close();
+		}
+	}
+
+	private static void visit(User user, double latitude, double longitude) {
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(latitude, longitude), new Date()));
+	}
+
+	private static void assertSameUser(User expected, User actual) {
+		assertNotNull(actual);
+		assertEquals(expected.getUserId(), actual.getUserId());
+		assertEquals(expected.getPhoneNumber(), actual.getPhoneNumber());
+		assertEquals(expected.getEmailAddress(), actual.getEmailAddress());
+		assertEquals(expected.getVisitedLocationHistory().getCapacity(), actual.getVisitedLocationHistory().getCapacity());
+		assertEquals(expected.getVisitedLocationHistory().getAppendedCount(), actual.getVisitedLocationHistory().getAppendedCount());
+		assertEquals(expected.getRewardsWatermark(), actual.getRewardsWatermark());
+		List<VisitedLocation> expectedLocations = expected.getVisitedLocations();
+		List<VisitedLocation> actualLocations = actual.getVisitedLocations();
+		assertEquals(expectedLocations.size(), actualLocations.size());
+		for(int i = 0; i < expectedLocations.size(); i++) {
+			assertEquals(expectedLocations.get(i).location.latitude, actualLocations.get(i).location.latitude, 1e-7);
+			assertEquals(expectedLocations.get(i).location.longitude, actualLocations.get(i).location.longitude, 1e-7);
+			assertEquals(expectedLocations.get(i).timeVisited.getTime() / 1000, actualLocations.get(i).timeVisited.getTime() / 1000);
+		}
+		assertEquals(expected.getUserRewards().size(), actual.getUserRewards().size());
+		for(int i = 0; i < expected.getUserRewards().size(); i++) {
+			UserReward expectedReward = expected.getUserRewards().get(i);
+			UserReward actualReward = actual.getUserRewards().get(i);
+			assertEquals(expectedReward.attraction.attractionName, actualReward.attraction.attractionName);
+			assertEquals(expectedReward.attraction.latitude, actualReward.attraction.latitude, 1e-7);
+			assertEquals(expectedReward.getRewardPoints(), actualReward.getRewardPoints());
+		}
+		assertEquals(expected.getCumulativeRewardPoints(), actual.getCumulativeRewardPoints());
+		assertFalse(actual.getVisitedLocations().isEmpty());
+	}
+
+}
@@ -0,0 +1,105 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+import tourGuide.helper.ExecutionMode;
+import tourGuide.model.User;
+import tourGuide.repository.InMemoryUserRepository;
+import tourGuide.service.RewardRules;
+import tourGuide.service.RewardsBackfill;
+import tourGuide.service.RewardsService;
+
+public class TestRewardsBackfill {
+
+	@Test
+	public void rulesAreSwappedAsNewVersions() {
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, Latency.none()));
+		RewardRules rules = rewardsService.getRules();
+
+		RewardRules widened = rewardsService.updateRules(r -> r.withProximityBuffer(100));
+
+		assertNotSame(rules, widened);
+		assertEquals(rules.getVersion() + 1, widened.getVersion());
+		assertEquals(100, rewardsService.getRules().getProximityBuffer());
+		assertEquals(RewardRules.DEFAULT.getProximityBuffer(), rules.getProximityBuffer());
+	}
+
+	@Test
+	public void rewardsHistoryThatQualifiesUnderNewRules() {
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, Latency.none()));
+		InMemoryUserRepository userRepository = new InMemoryUserRepository();
+		RewardsBackfill rewardsBackfill = new RewardsBackfill(rewardsService, userRepository, 7, 4, 0, ExecutionMode.VIRTUAL);
+		Attraction attraction = gpsClient.getAttractions().get(0);
+		for(int i = 0; i < 50; i++) {
+			User user = new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com");
+			// about 35 miles north of the attraction
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(),
+					new Location(attraction.latitude + 0.5, attraction.longitude), new Date()));
+			rewardsService.calculateRewards(user);
+			userRepository.putIfAbsent(user);
+		}
+		assertTrue(userRepository.findAll().stream().allMatch(u -> u.getRewardsWatermark() == 1
+				&& u.getUserRewards().stream().noneMatch(r -> r.attraction.attractionName.equals(attraction.attractionName))));
+
+		RewardsBackfill.Progress progress = rewardsBackfill.changeRules(rules -> rules.withProximityBuffer(50));
+		progress.getCompletion().join();
+		rewardsBackfill.close();
+
+		assertEquals(RewardsBackfill.Progress.State.DONE, progress.getState());
+		assertEquals(50, progress.getProcessedUserCount());
+		assertEquals(0, progress.getFailedUserCount());
+		assertTrue(progress.getRewardsGrantedCount() >= 50);
+		for(User user : userRepository.findAll()) {
+			assertTrue(user.getUserRewards().stream().anyMatch(r -> r.attraction.attractionName.equals(attraction.attractionName)));
+		}
+	}
+
+	@Test
+	public void throttlesAndIsCancelledByTheNextRun() {
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, Latency.none()));
+		InMemoryUserRepository userRepository = new InMemoryUserRepository();
+		for(int i = 0; i < 1000; i++) {
+			userRepository.putIfAbsent(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+		RewardsBackfill rewardsBackfill = new RewardsBackfill(rewardsService, userRepository, 10, 4, 100, ExecutionMode.VIRTUAL);
+
+		RewardsBackfill.Progress throttled = rewardsBackfill.changeRules(rules -> rules.withProximityBuffer(20));
+		long start = System.nanoTime();
+		while(throttled.getProcessedUserCount() < 20) {
+			Thread.onSpinWait();
+		}
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		// 100 users per second
+		assertTrue("20 users took " + elapsedMillis + "ms", elapsedMillis >= 100);
+
+		rewardsBackfill.setMaxUsersPerSecond(0);
+		RewardsBackfill.Progress next = rewardsBackfill.changeRules(rules -> rules.withProximityBuffer(30));
+		throttled.getCompletion().join();
+		next.getCompletion().join();
+		rewardsBackfill.close();
+
+		assertEquals(RewardsBackfill.Progress.State.CANCELLED, throttled.getState());
+		assertTrue(throttled.getProcessedUserCount() < 1000);
+		assertEquals(RewardsBackfill.Progress.State.DONE, next.getState());
+		assertEquals(1000, next.getProcessedUserCount());
+		assertEquals(30, rewardsService.getRules().getProximityBuffer());
+	}
+
+}
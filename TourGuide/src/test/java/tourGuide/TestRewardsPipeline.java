@@ -0,0 +1,224 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakePricingClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+import tourGuide.helper.ExecutionMode;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.model.User;
+import tourGuide.pipeline.RewardsPipeline;
+import tourGuide.pipeline.RingBuffer;
+import tourGuide.repository.InMemoryUserRepository;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+
+public class TestRewardsPipeline {
+
+	@Test
+	public void ringBufferRefusesElementsWhenFull() {
+		RingBuffer<Integer> ringBuffer = new RingBuffer<>(3);
+		assertEquals(4, ringBuffer.capacity());
+		for(int i = 0; i < 4; i++) {
+			assertTrue(ringBuffer.offer(i));
+		}
+		assertFalse(ringBuffer.offer(4));
+		assertEquals(4, ringBuffer.size());
+
+		assertEquals(Integer.valueOf(0), ringBuffer.poll());
+		assertTrue(ringBuffer.offer(4));
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(4, ringBuffer.drainTo(drained, 10));
+		assertEquals(List.of(1, 2, 3, 4), drained);
+		assertNull(ringBuffer.poll());
+	}
+
+	@Test
+	public void ringBufferHandsEveryElementToExactlyOneConsumer() throws InterruptedException {
+		RingBuffer<Integer> ringBuffer = new RingBuffer<>(64);
+		int producerCount = 4;
+		int elementsPerProducer = 50_000;
+		AtomicIntegerArray received = new AtomicIntegerArray(producerCount * elementsPerProducer);
+		AtomicInteger taken = new AtomicInteger();
+		ExecutorService executorService = Executors.newFixedThreadPool(2 * producerCount);
+		for(int p = 0; p < producerCount; p++) {
+			int first = p * elementsPerProducer;
+			executorService.execute(() -> {
+				for(int i = first; i < first + elementsPerProducer; i++) {
+					while(!ringBuffer.offer(i)) {
+						Thread.yield();
+					}
+				}
+			});
+			executorService.execute(() -> {
+				List<Integer> batch = new ArrayList<>();
+				while(taken.get() < received.length()) {
+					int count = ringBuffer.drainTo(batch, 16);
+					for(int element : batch) {
+						received.incrementAndGet(element);
+					}
+					batch.clear();
+					taken.addAndGet(count);
+					if(count == 0) {
+						Thread.yield();
+					}
+				}
+			});
+		}
+		executorService.shutdown();
+		assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+		for(int i = 0; i < received.length(); i++) {
+			assertEquals(1, received.get(i));
+		}
+	}
+
+	@Test
+	public void tourGuideServiceClosesOnlyThePipelineItMade() throws InterruptedException {
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, Latency.none()));
+		InternalTestHelper.setInternalUserNumber(0);
+		RewardsPipeline rewardsPipeline = new RewardsPipeline(rewardsService, 8, 1, 8, ExecutionMode.PLATFORM);
+		TourGuideService injected = new TourGuideService(gpsClient, rewardsService, new FakePricingClient(42, Latency.none()),
+				new InMemoryUserRepository(), rewardsPipeline, 10, ExecutionMode.PLATFORM, false, false, 100, 10);
+		TourGuideService owner = new TourGuideService(gpsClient, rewardsService, new FakePricingClient(42, Latency.none()),
+				new InMemoryUserRepository(), 10, ExecutionMode.VIRTUAL, false, false);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), gpsClient.getAttractions().get(0), new Date());
+		
+		injected.close();
+		owner.close();
+		rewardsPipeline.publish(user, visitedLocation);
+		owner.getRewardsPipeline().publish(user, visitedLocation);
+		
+		assertTrue(rewardsPipeline.awaitIdle(10, TimeUnit.SECONDS));
+		assertEquals(1, rewardsPipeline.getProcessedEventCount());
+		assertEquals(1, owner.getRewardsPipeline().getDroppedEventCount());
+		rewardsPipeline.close();
+		rewardsService.close();
+	}
+	
+	@Test
+	public void slowsPublishersDownWhenFullAndCalculatesOncePerUserAndBatch() throws InterruptedException {
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, Latency.fixed(20)));
+		RewardsPipeline rewardsPipeline = new RewardsPipeline(rewardsService, 8, 1, 8, ExecutionMode.PLATFORM);
+		Attraction attraction = gpsClient.getAttractions().get(0);
+		List<User> users = new ArrayList<>();
+		for(int i = 0; i < 4; i++) {
+			users.add(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+
+		for(int i = 0; i < 200; i++) {
+			User user = users.get(i % users.size());
+			VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attraction, new Date());
+			user.addToVisitedLocations(visitedLocation);
+			rewardsPipeline.publish(user, visitedLocation);
+			assertTrue(rewardsPipeline.getQueuedEventCount() <= rewardsPipeline.getCapacity());
+		}
+		assertTrue(rewardsPipeline.awaitIdle(10, TimeUnit.SECONDS));
+		rewardsPipeline.close();
+
+		assertTrue(rewardsPipeline.getBackpressureWaitCount() > 0);
+		assertEquals(200, rewardsPipeline.getProcessedEventCount());
+		// batches of up to 8 locations of 4 users
+		assertTrue(rewardsService.getCalculationCount() < 200);
+		for(User user : users) {
+			assertEquals(1, user.getUserRewards().size());
+			assertEquals(user.getVisitedLocationHistory().getAppendedCount(), user.getRewardsWatermark());
+		}
+	}
+
+	@Test
+	public void calculatesForAUserOnOneWorkerAtATime() throws InterruptedException {
+		Map<UUID, AtomicInteger> lookupsInFlight = new ConcurrentHashMap<>();
+		LongAccumulator maxLookupsInFlight = new LongAccumulator(Math::max, 0);
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, Latency.fixed(5)) {
+			@Override
+			public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+				AtomicInteger inFlight = lookupsInFlight.computeIfAbsent(userId, id -> new AtomicInteger());
+				maxLookupsInFlight.accumulate(inFlight.incrementAndGet());
+				try {
+					return super.getAttractionRewardPoints(attractionId, userId);
+				} finally {
+					inFlight.decrementAndGet();
+				}
+			}
+		});
+		RewardsPipeline rewardsPipeline = new RewardsPipeline(rewardsService, 1024, 4, 2, ExecutionMode.PLATFORM);
+		List<Attraction> attractions = gpsClient.getAttractions();
+		List<User> users = new ArrayList<>();
+		for(int i = 0; i < 2; i++) {
+			users.add(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+
+		// every location of a user is near a new attraction, each one a RewardCentral lookup
+		for(int i = 0; i < 2 * attractions.size(); i++) {
+			User user = users.get(i % users.size());
+			VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attractions.get(i / users.size()), new Date());
+			user.addToVisitedLocations(visitedLocation);
+			rewardsPipeline.publish(user, visitedLocation);
+		}
+		assertTrue(rewardsPipeline.awaitIdle(10, TimeUnit.SECONDS));
+		rewardsPipeline.close();
+
+		assertEquals(1, maxLookupsInFlight.get());
+		assertTrue(rewardsPipeline.getCoalescedEventCount() > 0);
+		assertEquals(2 * attractions.size(), rewardsPipeline.getProcessedEventCount());
+		for(User user : users) {
+			assertEquals(attractions.size(), user.getUserRewards().size());
+			assertEquals(user.getVisitedLocationHistory().getAppendedCount(), user.getRewardsWatermark());
+		}
+	}
+
+	@Test
+	public void drainsPublishedLocationsOnClose() {
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, Latency.fixed(20)));
+		RewardsPipeline rewardsPipeline = new RewardsPipeline(rewardsService, 1024, 2, 16, ExecutionMode.PLATFORM);
+		Attraction attraction = gpsClient.getAttractions().get(0);
+		List<User> users = new ArrayList<>();
+		for(int i = 0; i < 100; i++) {
+			User user = new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com");
+			VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attraction, new Date());
+			user.addToVisitedLocations(visitedLocation);
+			rewardsPipeline.publish(user, visitedLocation);
+			users.add(user);
+		}
+
+		rewardsPipeline.close();
+
+		assertEquals(0, rewardsPipeline.getPendingEventCount());
+		assertEquals(100, rewardsPipeline.getProcessedEventCount());
+		for(User user : users) {
+			assertEquals(1, user.getUserRewards().size());
+		}
+		User late = users.get(0);
+		rewardsPipeline.publish(late, late.getLastVisitedLocation());
+		assertEquals(1, rewardsPipeline.getDroppedEventCount());
+	}
+
+}
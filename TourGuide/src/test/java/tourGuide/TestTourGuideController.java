@@ -0,0 +1,89 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.client.GpsClient;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.model.User;
+import tourGuide.model.UserReward;
+import tourGuide.service.TourGuideService;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("fake")
+public class TestTourGuideController {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private TourGuideService tourGuideService;
+
+	@Autowired
+	private GpsClient gpsClient;
+
+	@BeforeClass
+	public static void setUpInternalUsers() {
+		// other test classes in the same JVM may have left it at 0
+		InternalTestHelper.setInternalUserNumber(10);
+	}
+
+	@Before
+	public void awaitInternalUsers() throws Exception {
+		// they're generated in the background once the application is ready
+		tourGuideService.getInternalUsersReady().get(30, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void getTripDeals() throws Exception {
+		User user = tourGuideService.getUser("internalUser0");
+
+		MvcResult result = mockMvc.perform(get("/getTripDeals").param("userName", user.getUserName()))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].tripId").isString())
+				.andExpect(jsonPath("$[0].name").isString());
+	}
+
+	@Test
+	public void getRewards() throws Exception {
+		User user = tourGuideService.getUser("internalUser1");
+		Attraction attraction = gpsClient.getAttractions().get(0);
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attraction, new Date(1_700_000_000_000L));
+		user.addUserReward(new UserReward(visitedLocation, attraction, 42));
+
+		mockMvc.perform(get("/getRewards").param("userName", user.getUserName()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].rewardPoints").value(42))
+				.andExpect(jsonPath("$[0].visitedLocation.userId").value(user.getUserId().toString()))
+				.andExpect(jsonPath("$[0].visitedLocation.timeVisited").value(1_700_000_000_000L));
+		assertEquals(attraction.attractionName, user.getUserRewards().get(0).attraction.attractionName);
+	}
+
+}
@@ -1,23 +1,48 @@
 package tourGuide;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
 
-import org.junit.Ignore;
 import org.junit.Test;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.TripPricerClient;
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakePricingClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+import tourGuide.helper.ExecutionMode;
 import tourGuide.helper.InternalTestHelper;
+import tourGuide.repository.InMemoryUserRepository;
 import tourGuide.service.RewardsService;
 import tourGuide.service.TourGuideService;
+import tourGuide.model.NearbyAttraction;
 import tourGuide.model.User;
+import tourGuide.model.UserReward;
 import tripPricer.Provider;
+import tripPricer.TripPricer;
 
 public class TestTourGuideService {
 
@@ -56,6 +81,26 @@ public class TestTourGuideService {
 		assertEquals(user2, retrivedUser2);
 	}
 	
+	@Test
+	public void addUserConcurrently() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		for(int i = 0; i < 10000; i++) {
+			String userName = "jon" + (i % 1000);
+			executorService.execute(() -> tourGuideService.addUser(new User(UUID.randomUUID(), userName, "000", userName + "@tourGuide.com")));
+		}
+		executorService.shutdown();
+		executorService.awaitTermination(1, TimeUnit.MINUTES);
+		
+		tourGuideService.tracker.stopTracking();
+		
+		assertEquals(1000, tourGuideService.getAllUsers().size());
+	}
+	
 	@Test
 	public void getAllUsers() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -69,7 +114,7 @@ public class TestTourGuideService {
 		tourGuideService.addUser(user);
 		tourGuideService.addUser(user2);
 		
-		List<User> allUsers = tourGuideService.getAllUsers();
+		Collection<User> allUsers = tourGuideService.getAllUsers();
 
 		tourGuideService.tracker.stopTracking();
 		
@@ -92,7 +137,72 @@ public class TestTourGuideService {
 		assertEquals(user.getUserId(), visitedLocation.userId);
 	}
 	
-	@Ignore // Not yet implemented
+	@Test
+	public void getAllCurrentLocations() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(2);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+		
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		tourGuideService.addUser(user);
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
+		
+		Map<UUID, Location> currentLocations = tourGuideService.getAllCurrentLocations();
+		
+		assertEquals(3, currentLocations.size());
+		assertEquals(visitedLocation.location, currentLocations.get(user.getUserId()));
+		for(User internalUser : tourGuideService.getAllUsers()) {
+			assertTrue(currentLocations.containsKey(internalUser.getUserId()));
+		}
+	}
+	
+	@Test
+	public void generatesInternalUsersInTheBackgroundOnceReady() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(5000);
+		TourGuideService tourGuideService = new TourGuideService(new GpsUtilClient(gpsUtil), rewardsService,
+				new TripPricerClient(new TripPricer()), new InMemoryUserRepository(), 10, ExecutionMode.PLATFORM, true);
+		tourGuideService.tracker.stopTracking();
+		assertEquals(0, tourGuideService.getAllUsers().size());
+		
+		tourGuideService.onApplicationReady();
+		tourGuideService.getInternalUsersReady().join();
+		
+		Collection<User> users = tourGuideService.getAllUsers();
+		assertEquals(5000, users.size());
+		assertEquals(5000, users.stream().map(User::getUserId).distinct().count());
+		assertEquals(5000, tourGuideService.getAllCurrentLocations().size());
+		for(int i = 0; i < 5000; i++) {
+			User user = tourGuideService.getUser("internalUser" + i);
+			assertEquals(3, user.getVisitedLocations().size());
+			assertEquals(4, user.getUserId().version());
+		}
+		// a second ready event doesn't generate them again
+		tourGuideService.onApplicationReady();
+		assertEquals(5000, tourGuideService.getAllUsers().size());
+	}
+	
+	@Test
+	public void trackAllUsers() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User user2 = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+		
+		tourGuideService.trackAllUsers(Arrays.asList(user, user2)).join();
+		
+		tourGuideService.tracker.stopTracking();
+		
+		assertEquals(1, user.getVisitedLocations().size());
+		assertEquals(1, user2.getVisitedLocations().size());
+	}
+	
 	@Test
 	public void getNearbyAttractions() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -103,11 +213,78 @@ public class TestTourGuideService {
 		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
 		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
 		
-		List<Attraction> attractions = tourGuideService.getNearByAttractions(visitedLocation);
+		List<NearbyAttraction> attractions = tourGuideService.getClosestAttractions(visitedLocation, 5);
 		
 		tourGuideService.tracker.stopTracking();
 		
 		assertEquals(5, attractions.size());
+		for(int i = 1; i < attractions.size(); i++) {
+			assertTrue(attractions.get(i - 1).distance <= attractions.get(i).distance);
+		}
+	}
+	
+	@Test
+	public void asyncLookupsReturnBeforeUpstreamsAnswer() {
+		// the upstreams answer once released
+		CountDownLatch upstreamsReleased = new CountDownLatch(1);
+		Latency untilReleased = new Latency() {
+			@Override
+			public long sampleNanos(RandomGenerator random) {
+				return 0;
+			}
+			
+			@Override
+			public void pause(SplittableRandom random) {
+				try {
+					upstreamsReleased.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		FakeGpsClient gpsClient = new FakeGpsClient(42, untilReleased);
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, untilReleased));
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsClient, rewardsService, new FakePricingClient(42, untilReleased));
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		
+		CompletableFuture<List<NearbyAttraction>> attractions = tourGuideService.getUserLocationAsync(user)
+				.thenCompose(visitedLocation -> tourGuideService.getClosestAttractionsAsync(visitedLocation, 5));
+		CompletableFuture<List<Provider>> providers = tourGuideService.getTripDealsAsync(user);
+		
+		assertFalse(attractions.isDone());
+		assertFalse(providers.isDone());
+		upstreamsReleased.countDown();
+		assertEquals(5, attractions.join().size());
+		assertEquals(providers.join(), user.getTripDeals());
+		assertSame(user.getLastVisitedLocation(), tourGuideService.getUserLocationAsync(user).join());
+		tourGuideService.tracker.stopTracking();
+	}
+	
+	@Test
+	public void tripDealsAreCachedUntilPreferencesOrRewardsChange() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		
+		List<Provider> providers = tourGuideService.getTripDeals(user);
+		List<Provider> cachedProviders = tourGuideService.getTripDeals(user);
+		user.getUserPreferences().setNumberOfAdults(2);
+		List<Provider> newProviders = tourGuideService.getTripDeals(user);
+		List<Provider> cachedNewProviders = tourGuideService.getTripDeals(user);
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		user.addUserReward(new UserReward(new VisitedLocation(user.getUserId(), attraction, new Date()), attraction, 10));
+		List<Provider> rewardedProviders = tourGuideService.getTripDeals(user);
+		
+		tourGuideService.tracker.stopTracking();
+		
+		assertSame(providers, cachedProviders);
+		assertNotSame(providers, newProviders);
+		assertSame(newProviders, cachedNewProviders);
+		assertNotSame(newProviders, rewardedProviders);
 	}
 	
 	public void getTripDeals() {
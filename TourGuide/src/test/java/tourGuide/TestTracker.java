@@ -0,0 +1,264 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.client.GpsClient;
+import tourGuide.client.UpstreamUnavailableException;
+import tourGuide.client.fake.FakeGpsClient;
+import tourGuide.client.fake.FakePricingClient;
+import tourGuide.client.fake.FakeRewardClient;
+import tourGuide.client.fake.Latency;
+import tourGuide.helper.ExecutionMode;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.model.User;
+import tourGuide.repository.InMemoryUserRepository;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.tracker.Tracker;
+
+public class TestTracker {
+
+	@Test
+	public void spreadsUsersOverTheInterval() throws InterruptedException {
+		ConcurrentLinkedQueue<Long> callTimes = new ConcurrentLinkedQueue<>();
+		FakeGpsClient fakeGpsClient = new FakeGpsClient(42, Latency.none());
+		GpsClient gpsClient = new GpsClient() {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				callTimes.add(System.nanoTime());
+				return fakeGpsClient.getUserLocation(userId);
+			}
+			
+			@Override
+			public List<Attraction> getAttractions() {
+				return fakeGpsClient.getAttractions();
+			}
+		};
+		TourGuideService tourGuideService = newTourGuideService(gpsClient);
+		List<User> users = addUsers(tourGuideService, "user", 200);
+		
+		long start = System.nanoTime();
+		Tracker tracker = new Tracker(tourGuideService, 1, TimeUnit.SECONDS, 10, 1000);
+		TimeUnit.MILLISECONDS.sleep(950);
+		tracker.stopTracking();
+		
+		for(User user : users) {
+			assertEquals(1, user.getVisitedLocations().size());
+		}
+		int[] callsPerSlot = new int[11];
+		for(long callTime : callTimes) {
+			callsPerSlot[(int) Math.min(10, TimeUnit.NANOSECONDS.toMillis(callTime - start) / 100)]++;
+		}
+		for(int calls : callsPerSlot) {
+			// 20 per slot on average, never all at once
+			assertTrue(calls < 60);
+		}
+	}
+	
+	@Test
+	public void pollsStationaryUsersLessOften() throws InterruptedException {
+		FakeGpsClient fakeGpsClient = new FakeGpsClient(42, Latency.none());
+		GpsClient gpsClient = new GpsClient() {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				VisitedLocation visitedLocation = fakeGpsClient.getUserLocation(userId);
+				if(userId.getMostSignificantBits() != 0) {
+					// the others stay put
+					return new VisitedLocation(userId, new Location(33.817595, -117.922008), visitedLocation.timeVisited);
+				}
+				// users with a zero most significant half keep moving
+				Location moved = new Location(visitedLocation.location.latitude, Math.random() * 360 - 180);
+				return new VisitedLocation(userId, moved, visitedLocation.timeVisited);
+			}
+			
+			@Override
+			public List<Attraction> getAttractions() {
+				return fakeGpsClient.getAttractions();
+			}
+		};
+		TourGuideService tourGuideService = newTourGuideService(gpsClient);
+		List<User> stationaryUsers = addUsers(tourGuideService, "stationary", 20);
+		List<User> movingUsers = new ArrayList<>();
+		for(int i = 0; i < 20; i++) {
+			User user = new User(new UUID(0, i), "moving" + i, "000", "moving" + i + "@tourGuide.com");
+			tourGuideService.addUser(user);
+			movingUsers.add(user);
+		}
+		
+		Tracker tracker = new Tracker(tourGuideService, 200, TimeUnit.MILLISECONDS, 10, 1000);
+		TimeUnit.MILLISECONDS.sleep(1500);
+		tracker.stopTracking();
+		
+		assertEquals(40, tracker.getTrackedUserCount());
+		// polls are counted when dispatched, a few may still be completing so the locations are counted first
+		int visitedLocationCount = movingUsers.stream().mapToInt(u -> u.getVisitedLocations().size()).sum()
+				+ stationaryUsers.stream().mapToInt(u -> u.getVisitedLocations().size()).sum();
+		assertTrue(tracker.getPollCount() >= visitedLocationCount);
+		assertTrue(tracker.getLastTurnNanos() >= TimeUnit.MILLISECONDS.toNanos(180));
+		// moving users are polled every interval, stationary ones after 1, 2 then 4 intervals
+		for(User user : movingUsers) {
+			assertTrue(user.getVisitedLocations().size() >= 7);
+		}
+		for(User user : stationaryUsers) {
+			assertTrue(user.getVisitedLocations().size() <= 4);
+		}
+	}
+	
+	@Test
+	public void defersPollsBeyondMaxInFlight() throws InterruptedException {
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		FakeGpsClient fakeGpsClient = new FakeGpsClient(42, Latency.fixed(50));
+		GpsClient gpsClient = new GpsClient() {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				try {
+					return fakeGpsClient.getUserLocation(userId);
+				} finally {
+					inFlight.decrementAndGet();
+				}
+			}
+			
+			@Override
+			public List<Attraction> getAttractions() {
+				return fakeGpsClient.getAttractions();
+			}
+		};
+		TourGuideService tourGuideService = newTourGuideService(gpsClient);
+		List<User> users = addUsers(tourGuideService, "user", 50);
+		
+		Tracker tracker = new Tracker(tourGuideService, 200, TimeUnit.MILLISECONDS, 2, 10);
+		TimeUnit.MILLISECONDS.sleep(1000);
+		tracker.stopTracking();
+		
+		assertTrue(maxInFlight.get() <= 10);
+		assertTrue(tracker.getDeferredPollCount() > 0);
+		for(User user : users) {
+			assertTrue(user.getVisitedLocations().size() >= 1);
+		}
+	}
+	
+	@Test
+	public void keepsTrackingAndTheKnownAttractionsThroughAGpsUtilOutage() throws InterruptedException {
+		AtomicBoolean outage = new AtomicBoolean();
+		FakeGpsClient fakeGpsClient = new FakeGpsClient(42, Latency.none());
+		GpsClient gpsClient = new GpsClient() {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				return fakeGpsClient.getUserLocation(userId);
+			}
+			
+			@Override
+			public List<Attraction> getAttractions() {
+				if(outage.get()) {
+					throw new UpstreamUnavailableException("gpsUtil circuit is open");
+				}
+				return fakeGpsClient.getAttractions();
+			}
+		};
+		TourGuideService tourGuideService = newTourGuideService(gpsClient);
+		List<User> users = addUsers(tourGuideService, "user", 20);
+		
+		outage.set(true);
+		Tracker tracker = new Tracker(tourGuideService, 100, TimeUnit.MILLISECONDS, 5, 1000);
+		TimeUnit.MILLISECONDS.sleep(1000);
+		tracker.stopTracking();
+		
+		// attractions are refreshed every turn, each refresh failed
+		assertTrue(tracker.getLastTurnNanos() > 0);
+		for(User user : users) {
+			assertTrue(user.getVisitedLocations().size() >= 2);
+			assertEquals(5, tourGuideService.getClosestAttractions(user.getLastVisitedLocation(), 5).size());
+		}
+	}
+	
+	@Test
+	public void pollsAgainTheUsersWhoseTrackingWasRejected() throws InterruptedException {
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		Set<UUID> rejectedUsers = ConcurrentHashMap.newKeySet();
+		InternalTestHelper.setInternalUserNumber(0);
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, Latency.none()));
+		TourGuideService tourGuideService = new TourGuideService(gpsClient, rewardsService, new FakePricingClient(42, Latency.none())) {
+			@Override
+			public CompletableFuture<VisitedLocation> trackUserLocationAsync(User user) {
+				// the first poll of every user is turned away before it starts
+				if(rejectedUsers.add(user.getUserId())) {
+					throw new RejectedExecutionException("tracking pool is full");
+				}
+				return super.trackUserLocationAsync(user);
+			}
+		};
+		tourGuideService.tracker.stopTracking();
+		List<User> users = addUsers(tourGuideService, "user", 20);
+		
+		Tracker tracker = new Tracker(tourGuideService, 100, TimeUnit.MILLISECONDS, 5, 1000);
+		TimeUnit.MILLISECONDS.sleep(500);
+		tracker.stopTracking();
+		
+		assertEquals(20, rejectedUsers.size());
+		for(User user : users) {
+			assertTrue(user.getVisitedLocations().size() >= 1);
+		}
+		// a poll dispatched just before stopping may still be completing
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while(tracker.getInFlight() > 0 && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(1);
+		}
+		assertEquals(0, tracker.getInFlight());
+	}
+	
+	@Test
+	public void disabledTrackingNeverPolls() throws InterruptedException {
+		FakeGpsClient gpsClient = new FakeGpsClient(42, Latency.none());
+		InternalTestHelper.setInternalUserNumber(5);
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, Latency.none()));
+		TourGuideService tourGuideService = new TourGuideService(gpsClient, rewardsService, new FakePricingClient(42, Latency.none()),
+				new InMemoryUserRepository(), 10, ExecutionMode.PLATFORM, false, false);
+		
+		TimeUnit.MILLISECONDS.sleep(200);
+		tourGuideService.close();
+		
+		assertEquals(5, tourGuideService.getAllUsers().size());
+		// a started tracker schedules the users on its first slot, right away
+		assertEquals(0, tourGuideService.tracker.getTrackedUserCount());
+		assertEquals(0, tourGuideService.tracker.getPollCount());
+	}
+	
+	private static TourGuideService newTourGuideService(GpsClient gpsClient) {
+		InternalTestHelper.setInternalUserNumber(0);
+		RewardsService rewardsService = new RewardsService(gpsClient, new FakeRewardClient(42, Latency.none()));
+		TourGuideService tourGuideService = new TourGuideService(gpsClient, rewardsService, new FakePricingClient(42, Latency.none()));
+		tourGuideService.tracker.stopTracking();
+		return tourGuideService;
+	}
+	
+	private static List<User> addUsers(TourGuideService tourGuideService, String prefix, int count) {
+		List<User> users = new ArrayList<>();
+		for(int i = 0; i < count; i++) {
+			User user = new User(UUID.randomUUID(), prefix + i, "000", prefix + i + "@tourGuide.com");
+			tourGuideService.addUser(user);
+			users.add(user);
+		}
+		return users;
+	}
+	
+}
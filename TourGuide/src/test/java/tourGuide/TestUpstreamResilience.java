@@ -0,0 +1,173 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import tourGuide.client.CircuitBreaker;
+import tourGuide.client.ConcurrencyLimit;
+import tourGuide.client.LatencyWindow;
+import tourGuide.client.UpstreamPolicy;
+import tourGuide.client.UpstreamUnavailableException;
+
+public class TestUpstreamResilience {
+
+	@Test
+	public void circuitOpensOnFailuresAndClosesOnceProbesSucceed() throws InterruptedException {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(10, 4, 50, 100, TimeUnit.MILLISECONDS, 2);
+		UpstreamPolicy policy = new UpstreamPolicy("test", new ConcurrencyLimit(10), circuitBreaker, 1, TimeUnit.SECONDS);
+		AtomicInteger upstreamCalls = new AtomicInteger();
+
+		for(int i = 0; i < 4; i++) {
+			try {
+				policy.call(() -> {
+					upstreamCalls.incrementAndGet();
+					throw new IllegalStateException("upstream down");
+				});
+				fail();
+			} catch (IllegalStateException e) {
+			}
+		}
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+		try {
+			policy.call(upstreamCalls::incrementAndGet);
+			fail();
+		} catch (UpstreamUnavailableException e) {
+		}
+		assertEquals(4, upstreamCalls.get());
+		assertEquals(1, circuitBreaker.getRejectionCount());
+
+		Thread.sleep(150);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+		policy.call(upstreamCalls::incrementAndGet);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+		policy.call(upstreamCalls::incrementAndGet);
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		assertEquals(1, circuitBreaker.getOpeningCount());
+	}
+
+	@Test
+	public void failedProbeOpensTheCircuitAgain() throws InterruptedException {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(10, 1, 50, 50, TimeUnit.MILLISECONDS, 3);
+		circuitBreaker.onFailure();
+		assertFalse(circuitBreaker.tryAcquire());
+
+		Thread.sleep(100);
+		assertTrue(circuitBreaker.tryAcquire());
+		circuitBreaker.onFailure();
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+		assertFalse(circuitBreaker.tryAcquire());
+		assertEquals(2, circuitBreaker.getOpeningCount());
+	}
+
+	@Test
+	public void hedgesCallsSlowerThanTheRecentQuantile() {
+		// room for the slow calls given up on, which keep their permit until they return
+		UpstreamPolicy policy = new UpstreamPolicy("test", new ConcurrencyLimit(50),
+				new CircuitBreaker(100, 20, 50, 1, TimeUnit.SECONDS, 1), new LatencyWindow(0.9), 5, 5000, TimeUnit.MILLISECONDS);
+		AtomicInteger upstreamCalls = new AtomicInteger();
+		// one upstream call in twenty takes 500ms, the others 2ms
+		Runnable upstream = () -> {
+			try {
+				Thread.sleep(upstreamCalls.incrementAndGet() % 20 == 0 ? 500 : 2);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+
+		// slow calls are only hedged once the quantile is known, after 100 calls
+		for(int i = 0; i < 100; i++) {
+			policy.call(() -> {
+				upstream.run();
+				return null;
+			});
+		}
+		long slowestMillis = 0;
+		for(int i = 0; i < 300; i++) {
+			long start = System.nanoTime();
+			policy.call(() -> {
+				upstream.run();
+				return null;
+			});
+			slowestMillis = Math.max(slowestMillis, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+
+		assertTrue(policy.getHedgeDelayNanos() > 0);
+		assertTrue(policy.getHedgeWinCount() > 0);
+		assertTrue(policy.getHedgeCount() < 100);
+		assertTrue("Slowest call took " + slowestMillis + "ms", slowestMillis < 250);
+	}
+
+	@Test
+	public void givesUpOnCallsPastTheTimeoutButKeepsTheirPermit() throws InterruptedException {
+		ConcurrencyLimit bulkhead = new ConcurrencyLimit(2);
+		UpstreamPolicy policy = new UpstreamPolicy("test", bulkhead,
+				new CircuitBreaker(10, 5, 50, 1, TimeUnit.SECONDS, 1), 50, TimeUnit.MILLISECONDS);
+		CountDownLatch release = new CountDownLatch(1);
+
+		try {
+			policy.call(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			});
+			fail();
+		} catch (UpstreamUnavailableException e) {
+		}
+		assertEquals(1, policy.getTimeoutCount());
+		assertEquals(1, bulkhead.getInFlight());
+
+		release.countDown();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while(bulkhead.getInFlight() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(0, bulkhead.getInFlight());
+	}
+
+	@Test
+	public void closedPolicyFailsCallsAndKeepsNoPermit() {
+		ConcurrencyLimit bulkhead = new ConcurrencyLimit(2);
+		UpstreamPolicy policy = new UpstreamPolicy("test", bulkhead,
+				new CircuitBreaker(10, 5, 50, 1, TimeUnit.SECONDS, 1), 1, TimeUnit.SECONDS);
+		policy.close();
+		
+		try {
+			policy.call(() -> 2);
+			fail();
+		} catch (UpstreamUnavailableException e) {
+		}
+		assertEquals(0, bulkhead.getInFlight());
+	}
+	
+	@Test
+	public void fullBulkheadTurnsCallersAwayWithoutOpeningTheCircuit() throws InterruptedException {
+		ConcurrencyLimit bulkhead = new ConcurrencyLimit(1, 20, TimeUnit.MILLISECONDS);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(10, 1, 50, 1, TimeUnit.SECONDS, 1);
+		UpstreamPolicy policy = new UpstreamPolicy("test", bulkhead, circuitBreaker, 1, TimeUnit.SECONDS);
+
+		bulkhead.acquire();
+		try {
+			policy.call(() -> null);
+			fail();
+		} catch (UpstreamUnavailableException e) {
+		}
+		bulkhead.release();
+
+		assertEquals(1, bulkhead.getRejectionCount());
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		assertNull(policy.call(() -> null));
+	}
+
+}
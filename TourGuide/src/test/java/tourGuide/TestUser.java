@@ -0,0 +1,156 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.model.AttractionIds;
+import tourGuide.model.User;
+import tourGuide.model.UserReward;
+import tourGuide.model.VisitedLocationHistory;
+
+public class TestUser {
+
+	@Test
+	public void historyKeepsMostRecentLocations() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com", 3);
+		assertNull(user.getLastVisitedLocation());
+		
+		VisitedLocation last = null;
+		for(int i = 0; i < 5; i++) {
+			last = new VisitedLocation(user.getUserId(), new Location(i, i), new Date());
+			user.addToVisitedLocations(last);
+		}
+		
+		List<VisitedLocation> visitedLocations = user.getVisitedLocations();
+		assertEquals(3, visitedLocations.size());
+		assertEquals(2.0, visitedLocations.get(0).location.latitude, 0);
+		assertEquals(4.0, visitedLocations.get(2).location.latitude, 0);
+		assertSame(last, user.getLastVisitedLocation());
+		assertEquals(5, user.getVisitedLocationHistory().getAppendedCount());
+		assertEquals(3, user.getVisitedLocationHistory().since(0).size());
+		assertSame(last, user.getVisitedLocationHistory().since(4).get(0));
+		assertEquals(0, user.getVisitedLocationHistory().since(5).size());
+	}
+	
+	@Test
+	public void historyGrowsOnDemandUpToItsCapacity() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com", 100);
+		VisitedLocationHistory history = user.getVisitedLocationHistory();
+		
+		// the buffer starts small, it grows several times before it's full and wraps around
+		for(int i = 0; i < 250; i++) {
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(i % 90, 0), new Date()));
+			assertEquals(Math.min(i + 1, 100), history.size());
+		}
+		
+		List<VisitedLocation> visitedLocations = history.snapshot();
+		assertEquals(100, history.getCapacity());
+		assertEquals(100, visitedLocations.size());
+		for(int i = 0; i < visitedLocations.size(); i++) {
+			assertEquals((150 + i) % 90, visitedLocations.get(i).location.latitude, 0);
+		}
+		assertEquals(50, history.since(200).size());
+		assertEquals(200 % 90, history.since(200).get(0).location.latitude, 0);
+	}
+	
+	@Test
+	public void rewardsEachAttractionOnceWhateverItsInstance() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), new Location(0, 0), new Date());
+		List<Attraction> attractions = new ArrayList<>();
+		for(int i = 0; i < 100; i++) {
+			attractions.add(new Attraction("Ledger attraction " + i, "City", "State", i, i));
+		}
+		
+		for(Attraction attraction : attractions) {
+			assertFalse(user.hasUserReward(attraction));
+			assertTrue(user.addUserReward(new UserReward(visitedLocation, attraction, 10)));
+		}
+		// gpsUtil gives the same attraction a new id every time it lists it, only its name tells
+		Attraction relisted = new Attraction("Ledger attraction 42", "City", "State", 42, 42);
+		assertTrue(user.hasUserReward(relisted));
+		assertTrue(user.hasUserReward(AttractionIds.of("Ledger attraction 99")));
+		assertFalse(user.addUserReward(new UserReward(visitedLocation, relisted, 10)));
+		assertFalse(user.hasUserReward(new Attraction("Ledger attraction 100", "City", "State", 0, 0)));
+		assertEquals(100, user.getUserRewards().size());
+		assertEquals(1000, user.getCumulativeRewardPoints());
+	}
+	
+	@Test
+	public void restoredHistoryKeepsItsTimes() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com", 3);
+		VisitedLocationHistory history = user.getVisitedLocationHistory();
+		// the user's oldest retained location has position 1000, in a year past 2038
+		long firstTime = 2_500_000_000_000L;
+		for(int i = 0; i < 3; i++) {
+			history.restore(new VisitedLocation(user.getUserId(), new Location(i, i), new Date(firstTime + i * 60_000L)), 1000 + i);
+		}
+		
+		List<VisitedLocation> visitedLocations = history.snapshot();
+		assertEquals(3, visitedLocations.size());
+		for(int i = 0; i < 3; i++) {
+			assertEquals(firstTime + i * 60_000L, visitedLocations.get(i).timeVisited.getTime());
+		}
+		assertEquals(1003, history.getAppendedCount());
+		assertEquals(firstTime, history.since(1000).get(0).timeVisited.getTime());
+	}
+	
+	@Test
+	public void historyKeepsCoordinatesToTheCentimetreAndTimesToTheSecond() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com", 1000);
+		Random random = new Random(42);
+		List<VisitedLocation> added = new ArrayList<>();
+		for(int i = 0; i < 1000; i++) {
+			Location location = new Location(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+			Date timeVisited = new Date(System.currentTimeMillis() - random.nextInt(Integer.MAX_VALUE));
+			VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), location, timeVisited);
+			user.addToVisitedLocations(visitedLocation);
+			added.add(visitedLocation);
+		}
+		
+		List<VisitedLocation> visitedLocations = user.getVisitedLocations();
+		for(int i = 0; i < added.size(); i++) {
+			VisitedLocation expected = added.get(i);
+			VisitedLocation actual = visitedLocations.get(i);
+			assertEquals(user.getUserId(), actual.userId);
+			assertEquals(expected.location.latitude, actual.location.latitude, 1e-7);
+			assertEquals(expected.location.longitude, actual.location.longitude, 1e-7);
+			assertEquals(expected.timeVisited.getTime() / 1000, actual.timeVisited.getTime() / 1000);
+		}
+	}
+	
+	@Test
+	public void historySupportsConcurrentAppendsAndReads() throws InterruptedException {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com", 100);
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		for(int i = 0; i < 10000; i++) {
+			executorService.execute(() -> {
+				user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(0, 0), new Date()));
+				user.getVisitedLocations().forEach(v -> v.location.hashCode());
+			});
+		}
+		executorService.shutdown();
+		executorService.awaitTermination(1, TimeUnit.MINUTES);
+		
+		assertEquals(100, user.getVisitedLocations().size());
+		assertEquals(10000, user.getVisitedLocationHistory().getAppendedCount());
+	}
+	
+}